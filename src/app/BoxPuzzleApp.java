@@ -12,7 +12,20 @@ public class BoxPuzzleApp {
 
     public static void main(String[] args) {
         // Initialize the main game object as requested in the assignment guidelines.
-        BoxPuzzle puzzle = new BoxPuzzle();
+        // An optional seed argument replays the same board and target letter.
+        BoxPuzzle puzzle;
+        if (args.length == 0) {
+            puzzle = new BoxPuzzle();
+        } else {
+            try {
+                puzzle = new BoxPuzzle(Long.parseLong(args[0]));
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid seed: " + args[0]);
+                System.err.println("Usage: java app.BoxPuzzleApp [seed]");
+                System.exit(2);
+                return;
+            }
+        }
         
         // Start the game logic.
         puzzle.play();
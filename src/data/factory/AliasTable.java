@@ -0,0 +1,105 @@
+package data.factory;
+
+import java.util.SplittableRandom;
+
+/**
+ * AliasTable
+ *
+ * Draws outcome i (0 <= i < size) with probability weights[i] / sum(weights) in
+ * constant time, using Vose's alias method: every column holds its own outcome,
+ * an alias and the chance of keeping its own one. A draw costs one random long,
+ * the high half picks the column and the low half decides between the two.
+ *
+ * Tables are immutable, so one table can be shared by any number of threads.
+ */
+public final class AliasTable {
+
+    private static final int THRESHOLD_BITS = 31;
+    private static final long THRESHOLD_ONE = 1L << THRESHOLD_BITS;
+
+    // per column: keep threshold (high 32 bits) and alias outcome (low 32 bits)
+    private final long[] columns;
+    private final double[] probabilities;
+
+    public AliasTable(double... weights) {
+        if (weights.length == 0) {
+            throw new IllegalArgumentException("An alias table needs at least one outcome");
+        }
+        double sum = 0;
+        for (double weight : weights) {
+            if (!(weight >= 0) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Invalid weight: " + weight);
+            }
+            sum += weight;
+        }
+        if (sum == 0) {
+            throw new IllegalArgumentException("At least one weight must be positive");
+        }
+
+        int size = weights.length;
+        probabilities = new double[size];
+        double[] scaled = new double[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < size; i++) {
+            probabilities[i] = weights[i] / sum;
+            scaled[i] = probabilities[i] * size;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        // pair each light column with a heavy outcome that fills it up to 1
+        columns = new long[size];
+        while (smallCount > 0 && largeCount > 0) {
+            int light = small[--smallCount];
+            int heavy = large[--largeCount];
+            columns[light] = column((long) (scaled[light] * THRESHOLD_ONE), heavy);
+            scaled[heavy] -= 1.0 - scaled[light];
+            if (scaled[heavy] < 1.0) {
+                small[smallCount++] = heavy;
+            } else {
+                large[largeCount++] = heavy;
+            }
+        }
+        // whatever is left is full up to rounding and aliases itself
+        while (largeCount > 0) {
+            int i = large[--largeCount];
+            columns[i] = column(THRESHOLD_ONE - 1, i);
+        }
+        while (smallCount > 0) {
+            int i = small[--smallCount];
+            columns[i] = column(THRESHOLD_ONE - 1, i);
+        }
+    }
+
+    private static long column(long threshold, int alias) {
+        return (threshold << 32) | alias;
+    }
+
+    public int sample(SplittableRandom random) {
+        return sample(random.nextLong());
+    }
+
+    /**
+     * The outcome for 64 uniformly random bits, for callers that draw them in bulk.
+     */
+    public int sample(long bits) {
+        int column = (int) (((bits >>> 32) * columns.length) >>> 32);
+        long entry = columns[column];
+        long coin = bits & (THRESHOLD_ONE - 1);
+        return coin < (entry >>> 32) ? column : (int) entry;
+    }
+
+    public int size() {
+        return columns.length;
+    }
+
+    public double probability(int outcome) {
+        return outcome >= 0 && outcome < probabilities.length ? probabilities[outcome] : 0;
+    }
+}
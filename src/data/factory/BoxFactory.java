@@ -1,50 +1,148 @@
 package data.factory;
 
 import data.models.Box;
+import data.models.CubeRotation;
 import data.models.FixedBox;
 import data.models.RegularBox;
 import data.models.UnchangingBox;
-import enums.Letter;
-import tools.SpecialTool;
+import data.repository.ArrayBoxGrid;
+import data.repository.CellState;
 import java.util.*;
+import java.util.stream.IntStream;
 
+// every draw comes from the caller's generator: the same seed builds the same boxes,
+// and callers on different threads use their own (split) generators
 public class BoxFactory {
 
-    private static final Random random = new Random();
+    // default chance of each box type, in percent
+    public static final int REGULAR_BOX_PERCENT = 85;
+    public static final int UNCHANGING_BOX_PERCENT = 10;
+    public static final int FIXED_BOX_PERCENT = 5;
 
-    public static Box createRandomBox() {
+    // createBoard hands out rows in chunks of this many, the height of an ArrayBoxGrid tile
+    private static final int BOARD_CHUNK_ROWS = 32;
 
-        int chance = random.nextInt(100);
-        List<Letter> faces = FaceFactory.createRandomFaces();
+    // box type distribution, indexed by CellState type code
+    private static volatile AliasTable boxTypes = defaultBoxTypes();
 
-        if (chance < 85) {
-            return createRegularBox(faces);
-        }
-        else if (chance < 95) {
-            return createUnchangingBox(faces);
-        }
-        else {
-            return createFixedBox(faces);
+    public static Box createRandomBox(SplittableRandom random) {
+
+        byte type = (byte) boxTypes.sample(random);
+        int faces = FaceFactory.createRandomPackedFaces(random);
+
+        switch (type) {
+            case CellState.TYPE_REGULAR:
+                return createRegularBox(faces, random);
+            case CellState.TYPE_UNCHANGING:
+                return createUnchangingBox(faces, random);
+            default:
+                return createFixedBox(faces);
         }
     }
 
-    private static Box createRegularBox(List<Letter> faces) {
+    private static Box createRegularBox(int faces, SplittableRandom random) {
         RegularBox box = new RegularBox(faces);
-        SpecialTool tool = ToolFactory.createForRegularBox();
-        box.setTool(tool);
+        box.setTool(ToolFactory.createForRegularBox(random));
         return box;
     }
 
-    private static Box createUnchangingBox(List<Letter> faces) {
+    private static Box createUnchangingBox(int faces, SplittableRandom random) {
         UnchangingBox box = new UnchangingBox(faces);
-        SpecialTool tool = ToolFactory.createForUnchangingBox();
-        box.setTool(tool);
+        box.setTool(ToolFactory.createForUnchangingBox(random));
         return box;
     }
-    private static Box createFixedBox(List<Letter> faces) {
+    private static Box createFixedBox(int faces) {
         FixedBox box = new FixedBox(faces);
         box.setTool(null);          // always empty
         return box;
     }
 
+    /**
+     * Builds a whole random board straight into an ArrayBoxGrid, without Box or
+     * tool objects. Chunks of rows are filled in parallel, each from its own
+     * generator split off new SplittableRandom(seed) in chunk order, so the same
+     * seed and size always give the same board. (It is not the board that
+     * new ArrayBoxGrid(rows, cols, new SplittableRandom(seed)) gives.)
+     */
+    public static ArrayBoxGrid createBoard(long seed, int rowCount, int columnCount) {
+        ArrayBoxGrid grid = ArrayBoxGrid.blank(rowCount, columnCount);
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[(rowCount + BOARD_CHUNK_ROWS - 1) / BOARD_CHUNK_ROWS];
+        for (int chunk = 0; chunk < randoms.length; chunk++) {
+            randoms[chunk] = root.split();
+        }
+        AliasTable types = boxTypes;
+        IntStream.range(0, randoms.length).parallel().forEach(chunk -> {
+            int firstRow = chunk * BOARD_CHUNK_ROWS;
+            fillRows(grid, firstRow, Math.min(rowCount, firstRow + BOARD_CHUNK_ROWS), types, randoms[chunk]);
+        });
+        return grid;
+    }
+
+    /**
+     * A random board drawn from one generator on the calling thread, with the same
+     * allocation-free fill as createBoard(seed, ...). For callers that already build
+     * many boards in parallel, such as MonteCarloSimulator.
+     */
+    public static ArrayBoxGrid createBoard(SplittableRandom random, int rowCount, int columnCount) {
+        ArrayBoxGrid grid = ArrayBoxGrid.blank(rowCount, columnCount);
+        fillRows(grid, 0, rowCount, boxTypes, random);
+        return grid;
+    }
+
+    // rows [firstRow, lastRow) of a grid nothing else is tracking yet
+    private static void fillRows(ArrayBoxGrid grid, int firstRow, int lastRow, AliasTable types, SplittableRandom random) {
+        int columnCount = grid.getColumnCount();
+        int[] faces = new int[columnCount];
+        byte[] typeCodes = new byte[columnCount];
+        byte[] toolKinds = new byte[columnCount];
+        for (int rowIndex = firstRow; rowIndex < lastRow; rowIndex++) {
+            FaceFactory.fillRandomPackedFaces(random, faces, 0, columnCount);
+            for (int colIndex = 0; colIndex < columnCount; colIndex++) {
+                typeCodes[colIndex] = (byte) types.sample(random.nextLong());
+            }
+            for (int colIndex = 0; colIndex < columnCount; colIndex++) {
+                toolKinds[colIndex] = ToolFactory.createToolKind(typeCodes[colIndex], random.nextLong());
+            }
+            for (int colIndex = 0; colIndex < columnCount; colIndex++) {
+                // a box without a tool is empty, as with Box.setTool(null)
+                grid.setCellState(rowIndex, colIndex, CellState.of(
+                        CubeRotation.state(faces[colIndex], CubeRotation.IDENTITY), typeCodes[colIndex],
+                        toolKinds[colIndex], false, toolKinds[colIndex] == CellState.TOOL_NONE));
+            }
+        }
+    }
+
+    /**
+     * Changes how often each box type is created; only the ratios matter.
+     */
+    public static void setBoxTypeWeights(double regular, double unchanging, double fixed) {
+        double[] weights = new double[CellState.TYPE_FIXED + 1];
+        weights[CellState.TYPE_REGULAR] = regular;
+        weights[CellState.TYPE_UNCHANGING] = unchanging;
+        weights[CellState.TYPE_FIXED] = fixed;
+        boxTypes = new AliasTable(weights);
+    }
+
+    /**
+     * Restores the 85/10/5 split of the assignment.
+     */
+    public static void resetBoxTypeWeights() {
+        boxTypes = defaultBoxTypes();
+    }
+
+    /**
+     * Probability that a new box has the given type (CellState type code).
+     */
+    public static double boxTypeChance(byte boxType) {
+        return boxTypes.probability(boxType);
+    }
+
+    private static AliasTable defaultBoxTypes() {
+        double[] weights = new double[CellState.TYPE_FIXED + 1];
+        weights[CellState.TYPE_REGULAR] = REGULAR_BOX_PERCENT;
+        weights[CellState.TYPE_UNCHANGING] = UNCHANGING_BOX_PERCENT;
+        weights[CellState.TYPE_FIXED] = FIXED_BOX_PERCENT;
+        return new AliasTable(weights);
+    }
 }
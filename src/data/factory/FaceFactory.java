@@ -1,30 +1,76 @@
 package data.factory;
+import data.models.PackedFaces;
 import enums.Letter;
 import java.util.*;
 
+/**
+ * Draws the six faces of a new box: any letter, at most MAX_SAME_LETTER times.
+ *
+ * Every valid face set (201600 of them, packed as in PackedFaces) is listed once
+ * with the probability the old draw-and-reject loop gave it, where each face is
+ * uniform over the letters still allowed. An AliasTable over that list gives a
+ * face set from a single random long, without retries or counting.
+ */
 public class FaceFactory {
     public static final int INITIAL_FACE_CAPACITY = 6;
-    private static final Random random = new Random();
+    public static final int MAX_SAME_LETTER = 2;
 
-    public static List<Letter> createRandomFaces() {
-        List<Letter> faces = new ArrayList<>(INITIAL_FACE_CAPACITY);
-        Map<Letter, Integer> counts = new HashMap<>();
-        Letter[] letters = Letter.values();
+    private static final Letter[] LETTERS = Letter.values();
+    private static final int LETTER_COUNT = LETTERS.length;
 
-        while (faces.size() < INITIAL_FACE_CAPACITY ) {
-            Letter chosen = letters[random.nextInt(letters.length)];
+    // every valid face set, packed, and the chance of each one
+    private static final int[] FACE_SETS;
+    private static final AliasTable FACE_SET_TABLE;
 
-            Integer usedCount = counts.get(chosen);
+    static {
+        // LETTER_COUNT^6 is an upper bound, the limit per letter rules some of them out
+        int bound = (int) Math.pow(LETTER_COUNT, INITIAL_FACE_CAPACITY);
+        int[] faceSets = new int[bound];
+        double[] weights = new double[bound];
+        int count = listFaceSets(0, 0, new int[LETTER_COUNT], 1.0, faceSets, weights, 0);
+        FACE_SETS = Arrays.copyOf(faceSets, count);
+        FACE_SET_TABLE = new AliasTable(Arrays.copyOf(weights, count));
+    }
+
+    public static List<Letter> createRandomFaces(SplittableRandom random) {
+        return new ArrayList<>(PackedFaces.asList(createRandomPackedFaces(random)));
+    }
+
+    public static int createRandomPackedFaces(SplittableRandom random) {
+        return FACE_SETS[FACE_SET_TABLE.sample(random)];
+    }
 
-            if (usedCount == null) {
-                faces.add(chosen);
-                counts.put(chosen, 1);
+    /**
+     * Fills packedFaces[from, to) with random face sets, one random long each.
+     */
+    public static void fillRandomPackedFaces(SplittableRandom random, int[] packedFaces, int from, int to) {
+        for (int i = from; i < to; i++) {
+            packedFaces[i] = FACE_SETS[FACE_SET_TABLE.sample(random.nextLong())];
+        }
+    }
+
+    // appends every valid completion of the first faceIndex faces, returns the new count
+    private static int listFaceSets(int faceIndex, int packed, int[] used, double probability,
+                                    int[] faceSets, double[] weights, int count) {
+        if (faceIndex == INITIAL_FACE_CAPACITY) {
+            faceSets[count] = packed;
+            weights[count] = probability;
+            return count + 1;
+        }
+        int allowed = 0;
+        for (int letter = 0; letter < LETTER_COUNT; letter++) {
+            if (used[letter] < MAX_SAME_LETTER) {
+                allowed++;
             }
-            else if (usedCount < 2) {
-                faces.add(chosen);
-                counts.put(chosen, usedCount + 1);
+        }
+        for (int letter = 0; letter < LETTER_COUNT; letter++) {
+            if (used[letter] < MAX_SAME_LETTER) {
+                used[letter]++;
+                int next = PackedFaces.withFace(packed, faceIndex, LETTERS[letter]);
+                count = listFaceSets(faceIndex + 1, next, used, probability / allowed, faceSets, weights, count);
+                used[letter]--;
             }
         }
-        return faces;
+        return count;
     }
 }
@@ -1,50 +1,103 @@
 package data.factory;
+import data.repository.CellState;
 import tools.*;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 public class ToolFactory {
 
-    private static final Random random = new Random();
+    // default chance of each single tool, in percent
+    public static final int REGULAR_TOOL_PERCENT = 15;
+    public static final int UNCHANGING_TOOL_PERCENT = 20;
+
+    // tool kind distributions, indexed by CellState tool code (TOOL_NONE first)
+    private static volatile AliasTable regularTools = defaultTable(REGULAR_TOOL_PERCENT);
+    private static volatile AliasTable unchangingTools = defaultTable(UNCHANGING_TOOL_PERCENT);
 
     // RegularBox: for every tool %15 possibility rest of them are null
-    public static SpecialTool createForRegularBox() {
-        int randInt = random.nextInt(100); // 0..99
-        switch (randInt / 15) {
-            case 0:  // 0–14
-                return new PlusShapeStamp();
-            case 1:  // 15–29
-                return new MassRowStamp();
-            case 2:  // 30–44
-                return new MassColumnStamp();
-            case 3:  // 45–59
-                return new BoxFlipper();
-            case 4:  // 60–74
-                return new BoxFixer();
-            default: // 75–99
-                return null; // %25 boş
-        }
+    public static SpecialTool createForRegularBox(SplittableRandom random) {
+        return CellState.toolOf(createToolKind(CellState.TYPE_REGULAR, random.nextLong()));
     }
 
     // UnchangingBox: for every tool % 20 possibility
-    public static SpecialTool createForUnchangingBox() {
-        int randInt = random.nextInt(100);
-
-        switch (randInt / 20) {
-            case 0:  // 0–19
-                return new PlusShapeStamp();
-            case 1:  // 20–39
-                return new MassRowStamp();
-            case 2:  // 40–59
-                return new MassColumnStamp();
-            case 3:  // 60–79
-                return new BoxFlipper();
-            default: // 80–99
-                return new BoxFixer();
-        }
+    public static SpecialTool createForUnchangingBox(SplittableRandom random) {
+        return CellState.toolOf(createToolKind(CellState.TYPE_UNCHANGING, random.nextLong()));
     }
 
     // FixedBox: %0 tool
     public static SpecialTool createForFixedBox() {
         return null;
     }
-}
\ No newline at end of file
+
+    /**
+     * The tool kind (CellState tool code) of a new box of the given type, drawn
+     * from 64 random bits. Bulk board builders use this to skip the tool objects.
+     */
+    public static byte createToolKind(byte boxType, long randomBits) {
+        AliasTable table = toolTable(boxType);
+        return table == null ? CellState.TOOL_NONE : (byte) table.sample(randomBits);
+    }
+
+    /**
+     * Changes how often new boxes of the given type hold each tool. weights are
+     * indexed by CellState tool code, starting with TOOL_NONE; only their ratios
+     * matter. FixedBoxes are always empty and cannot be configured.
+     */
+    public static void setToolWeights(byte boxType, double... weights) {
+        if (weights.length != CellState.TOOL_FIXER + 1) {
+            throw new IllegalArgumentException("Expected " + (CellState.TOOL_FIXER + 1) + " tool weights, got " + weights.length);
+        }
+        AliasTable table = new AliasTable(weights);
+        switch (boxType) {
+            case CellState.TYPE_REGULAR:
+                regularTools = table;
+                break;
+            case CellState.TYPE_UNCHANGING:
+                unchangingTools = table;
+                break;
+            default:
+                throw new IllegalArgumentException("Tools of box type " + boxType + " cannot be configured");
+        }
+    }
+
+    /**
+     * Restores the tool chances of the assignment (15% and 20% per tool).
+     */
+    public static void resetToolWeights() {
+        regularTools = defaultTable(REGULAR_TOOL_PERCENT);
+        unchangingTools = defaultTable(UNCHANGING_TOOL_PERCENT);
+    }
+
+    /**
+     * Probability that a new box of the given type (CellState type code) holds the
+     * given tool kind (CellState tool code), as produced by the methods above.
+     * Searches use it to weigh what an unopened box may contain.
+     */
+    public static double toolChance(byte boxType, byte toolKind) {
+        AliasTable table = toolTable(boxType);
+        if (table == null) {
+            return toolKind == CellState.TOOL_NONE ? 1.0 : 0.0;
+        }
+        return table.probability(toolKind);
+    }
+
+    private static AliasTable toolTable(byte boxType) {
+        switch (boxType) {
+            case CellState.TYPE_REGULAR:
+                return regularTools;
+            case CellState.TYPE_UNCHANGING:
+                return unchangingTools;
+            default:
+                return null;
+        }
+    }
+
+    // each of the five tools gets toolPercent, no tool gets the rest
+    private static AliasTable defaultTable(int toolPercent) {
+        double[] weights = new double[CellState.TOOL_FIXER + 1];
+        weights[CellState.TOOL_NONE] = 100 - 5 * toolPercent;
+        for (int toolKind = CellState.TOOL_PLUS_SHAPE; toolKind <= CellState.TOOL_FIXER; toolKind++) {
+            weights[toolKind] = toolPercent;
+        }
+        return new AliasTable(weights);
+    }
+}
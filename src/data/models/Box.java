@@ -1,35 +1,47 @@
 package data.models;
 
+import data.repository.CellState;
 import enums.Letter;
 import enums.Direction;
 import tools.SpecialTool;
+
+import java.util.AbstractList;
 import java.util.List;
 
 public abstract class Box {
 
-    protected List<Letter> boxFaces;
+    // immutable face set (packed 3 bits per face, see PackedFaces) the orientation is applied to
+    protected int baseFaces;
+    // one of the 24 cube rotations, see CubeRotation
+    protected int orientation;
     protected boolean isOpened;
     protected boolean isEmpty;
-    protected SpecialTool specialTool;
+    // CellState tool code, the tools themselves are shared stateless instances
+    protected byte toolKind;
 
     public Box(List<Letter> boxFaces){
-        this.boxFaces = boxFaces;
+        this(PackedFaces.pack(boxFaces));
+    }
+
+    public Box(int packedFaces){
+        this.baseFaces = packedFaces;
+        this.orientation = CubeRotation.IDENTITY;
         this.isOpened = false;
         this.isEmpty = false;
-        this.specialTool = null;
+        this.toolKind = CellState.TOOL_NONE;
     }
 
     public Letter getTopFace() {
-        return boxFaces.get(0);
+        return PackedFaces.face(baseFaces, CubeRotation.sourceFace(orientation, PackedFaces.TOP));
     }
 
     public SpecialTool removeTool() {
-        if (specialTool == null) {
+        if (toolKind == CellState.TOOL_NONE) {
             return null;
         }
 
-        SpecialTool temp = specialTool;
-        specialTool = null;
+        SpecialTool temp = CellState.toolOf(toolKind);
+        toolKind = CellState.TOOL_NONE;
         isEmpty = true;
         isOpened = true;
         return temp;
@@ -43,24 +55,69 @@ public abstract class Box {
         return isEmpty;
     }
     public SpecialTool getTool(){
-        return specialTool;
+        return CellState.toolOf(toolKind);
     }
 
 
     public boolean hasTool() {
-        return specialTool != null;
+        return toolKind != CellState.TOOL_NONE;
     }
 
 
     public void setTool(SpecialTool specialTool) {
-        this.specialTool = specialTool;
+        this.toolKind = CellState.toolKindOf(specialTool);
         if(specialTool == null){
             this.isEmpty = true;
         }
     }
 
+    /**
+     * Returns a read-only view of the faces that always reflects the current orientation.
+     */
     public List<Letter> getBoxFaces(){
-        return boxFaces;
+        return new AbstractList<Letter>() {
+            @Override
+            public Letter get(int index) {
+                if (index < 0 || index >= PackedFaces.FACE_COUNT) {
+                    throw new IndexOutOfBoundsException("Face index: " + index);
+                }
+                return PackedFaces.face(baseFaces, CubeRotation.sourceFace(orientation, index));
+            }
+
+            @Override
+            public int size() {
+                return PackedFaces.FACE_COUNT;
+            }
+        };
+    }
+
+    public int getPackedFaces(){
+        return CubeRotation.apply(baseFaces, orientation);
+    }
+
+    public int getBaseFaces(){
+        return baseFaces;
+    }
+
+    public int getOrientation(){
+        return orientation;
+    }
+
+    /**
+     * Returns the rotation that turns this box into the orientation of the other box,
+     * or -1 if the two boxes do not share the same face set.
+     */
+    public int rotationTo(Box other){
+        if (baseFaces != other.baseFaces) {
+            return -1;
+        }
+        return CubeRotation.compose(CubeRotation.inverse(orientation), other.orientation);
+    }
+
+    // Flip and restamp are not cube rotations, so they start a new face set
+    protected void rebase(int packedFaces){
+        this.baseFaces = packedFaces;
+        this.orientation = CubeRotation.IDENTITY;
     }
 
     public char getStatusMarker(){
@@ -74,11 +131,7 @@ public abstract class Box {
 
     public void flip() {
         // switches the up(index=0) and down(index=1) faces
-        Letter upFace = boxFaces.get(0);
-        Letter downFace = boxFaces.get(1);
-
-        boxFaces.set(0, downFace);
-        boxFaces.set(1, upFace);
+        rebase(PackedFaces.flip(getPackedFaces()));
     }
 
     /**
@@ -88,48 +141,25 @@ public abstract class Box {
      * Face indices: 0=Top, 1=Bottom, 2=Front, 3=Back, 4=Left, 5=Right
      */
     public void roll(Direction direction) {
-        Letter temp;
-
-        switch (direction) {
-            case RIGHT:
-                // Top -> Right, Right -> Bottom, Bottom -> Left, Left -> Top
-                temp = boxFaces.get(0);
-                boxFaces.set(0, boxFaces.get(4));  // Left becomes Top
-                boxFaces.set(4, boxFaces.get(1));  // Bottom becomes Left
-                boxFaces.set(1, boxFaces.get(5));  // Right becomes Bottom
-                boxFaces.set(5, temp);             // Top becomes Right
-                break;
-
-            case LEFT:
-                // Top -> Left, Left -> Bottom, Bottom -> Right, Right -> Top
-                temp = boxFaces.get(0);
-                boxFaces.set(0, boxFaces.get(5));  // Right becomes Top
-                boxFaces.set(5, boxFaces.get(1));  // Bottom becomes Right
-                boxFaces.set(1, boxFaces.get(4));  // Left becomes Bottom
-                boxFaces.set(4, temp);             // Top becomes Left
-                break;
-
-            case UP:
-                // Top -> Back, Back -> Bottom, Bottom -> Front, Front -> Top
-                temp = boxFaces.get(0);
-                boxFaces.set(0, boxFaces.get(2));  // Front becomes Top
-                boxFaces.set(2, boxFaces.get(1));  // Bottom becomes Front
-                boxFaces.set(1, boxFaces.get(3));  // Back becomes Bottom
-                boxFaces.set(3, temp);             // Top becomes Back
-                break;
-
-            case DOWN:
-                // Top -> Front, Front -> Bottom, Bottom -> Back, Back -> Top
-                temp = boxFaces.get(0);
-                boxFaces.set(0, boxFaces.get(3));  // Back becomes Top
-                boxFaces.set(3, boxFaces.get(1));  // Bottom becomes Back
-                boxFaces.set(1, boxFaces.get(2));  // Front becomes Bottom
-                boxFaces.set(2, temp);             // Top becomes Front
-                break;
-
-            default:
-                System.out.println("Invalid roll direction: " + direction);
-        }
+        orientation = CubeRotation.roll(orientation, direction);
+    }
+
+    /**
+     * Applies a whole sequence of rolls at once, as collapsed by CubeRotation.of(...).
+     */
+    public void applyRotation(int rotation) {
+        orientation = CubeRotation.compose(orientation, rotation);
+    }
+
+    /**
+     * Overwrites everything the box holds, used when a grid restores an earlier state.
+     */
+    public void setState(int baseFaces, int orientation, SpecialTool specialTool, boolean isOpened, boolean isEmpty) {
+        this.baseFaces = baseFaces;
+        this.orientation = orientation;
+        this.toolKind = CellState.toolKindOf(specialTool);
+        this.isOpened = isOpened;
+        this.isEmpty = isEmpty;
     }
 
     public abstract boolean canRoll();
@@ -0,0 +1,151 @@
+package data.models;
+
+import enums.Direction;
+import enums.Letter;
+
+import java.util.Arrays;
+
+/**
+ * CubeRotation
+ *
+ * The 24 rotations of a cube, indexed 0..23 (0 is the identity).
+ * A box orientation is a rotation index applied to an immutable packed face set
+ * (see PackedFaces), so rolling is a single table lookup.
+ *
+ * Tables:
+ *  - ROLL[rotation][direction]: the rotation reached after rolling once more.
+ *  - COMPOSE[a][b]: applying rotation a and then rotation b.
+ *  - INVERSE[a]: the rotation that undoes a.
+ *
+ * Any sequence of rolls therefore collapses into one rotation index, and
+ * applying it to a box costs one COMPOSE lookup.
+ */
+public final class CubeRotation {
+
+    public static final int COUNT = 24;
+    public static final int IDENTITY = 0;
+
+    // An orientation state packs the base faces (low 18 bits) and the rotation index above them
+    private static final int STATE_SHIFT = 18;
+    private static final int BASE_MASK = (1 << STATE_SHIFT) - 1;
+
+    // PERMUTATIONS[r][i] = index of the base face shown at position i under rotation r
+    private static final int[][] PERMUTATIONS = new int[COUNT][];
+    private static final int[][] ROLL = new int[COUNT][Direction.values().length];
+    private static final int[][] COMPOSE = new int[COUNT][COUNT];
+    private static final int[] INVERSE = new int[COUNT];
+
+    static {
+        // Breadth-first closure of the identity under the four rolls gives all 24 rotations
+        PERMUTATIONS[IDENTITY] = new int[]{0, 1, 2, 3, 4, 5};
+        int found = 1;
+        for (int current = 0; current < found; current++) {
+            for (Direction direction : Direction.values()) {
+                int[] next = chain(PERMUTATIONS[current], PackedFaces.rollSource(direction));
+                int index = indexOf(next, found);
+                if (index < 0) {
+                    index = found;
+                    PERMUTATIONS[found++] = next;
+                }
+                ROLL[current][direction.ordinal()] = index;
+            }
+        }
+        if (found != COUNT) {
+            throw new IllegalStateException("Expected " + COUNT + " cube rotations, found " + found);
+        }
+
+        for (int a = 0; a < COUNT; a++) {
+            for (int b = 0; b < COUNT; b++) {
+                COMPOSE[a][b] = indexOf(chain(PERMUTATIONS[a], PERMUTATIONS[b]), COUNT);
+                if (COMPOSE[a][b] == IDENTITY) {
+                    INVERSE[a] = b;
+                }
+            }
+        }
+    }
+
+    private CubeRotation() {
+    }
+
+    // the permutation for "first, then second"
+    private static int[] chain(int[] first, int[] second) {
+        int[] result = new int[PackedFaces.FACE_COUNT];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = first[second[i]];
+        }
+        return result;
+    }
+
+    private static int indexOf(int[] permutation, int limit) {
+        for (int r = 0; r < limit; r++) {
+            if (Arrays.equals(PERMUTATIONS[r], permutation)) {
+                return r;
+            }
+        }
+        return -1;
+    }
+
+    public static int roll(int rotation, Direction direction) {
+        return ROLL[rotation][direction.ordinal()];
+    }
+
+    public static int compose(int first, int second) {
+        return COMPOSE[first][second];
+    }
+
+    public static int inverse(int rotation) {
+        return INVERSE[rotation];
+    }
+
+    /**
+     * Collapses a sequence of rolls into a single rotation index.
+     */
+    public static int of(Direction... directions) {
+        int rotation = IDENTITY;
+        for (Direction direction : directions) {
+            rotation = ROLL[rotation][direction.ordinal()];
+        }
+        return rotation;
+    }
+
+    /**
+     * Returns the index of the base face that is shown at faceIndex under the rotation.
+     */
+    public static int sourceFace(int rotation, int faceIndex) {
+        return PERMUTATIONS[rotation][faceIndex];
+    }
+
+    /**
+     * Applies the rotation to a packed face set and returns the packed faces as they are shown.
+     */
+    public static int apply(int packedFaces, int rotation) {
+        return PackedFaces.permute(packedFaces, PERMUTATIONS[rotation]);
+    }
+
+    public static int state(int baseFaces, int rotation) {
+        return baseFaces | (rotation << STATE_SHIFT);
+    }
+
+    public static int stateBase(int state) {
+        return state & BASE_MASK;
+    }
+
+    public static int stateRotation(int state) {
+        return state >>> STATE_SHIFT;
+    }
+
+    public static int stateRoll(int state, Direction direction) {
+        return (state & BASE_MASK) | (ROLL[state >>> STATE_SHIFT][direction.ordinal()] << STATE_SHIFT);
+    }
+
+    public static Letter stateFace(int state, int faceIndex) {
+        return PackedFaces.face(state & BASE_MASK, PERMUTATIONS[state >>> STATE_SHIFT][faceIndex]);
+    }
+
+    /**
+     * Returns the packed faces as they are shown for an orientation state.
+     */
+    public static int stateFaces(int state) {
+        return apply(state & BASE_MASK, state >>> STATE_SHIFT);
+    }
+}
@@ -9,6 +9,11 @@ public class FixedBox extends Box{
         super(faces);
         this.isEmpty = true;
     }
+
+    public FixedBox(int packedFaces){
+        super(packedFaces);
+        this.isEmpty = true;
+    }
     @Override
     public boolean canRoll(){
         return false;
@@ -0,0 +1,113 @@
+package data.models;
+
+import enums.Direction;
+import enums.Letter;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * PackedFaces
+ *
+ * Stores the six faces of a box inside a single int, 3 bits per face.
+ * Face indices: 0=Top, 1=Bottom, 2=Front, 3=Back, 4=Left, 5=Right
+ * (face i lives in bits [3*i, 3*i+2]).
+ *
+ * Rolling and flipping are table-driven permutations of those bit fields,
+ * so they never allocate.
+ */
+public final class PackedFaces {
+
+    public static final int FACE_COUNT = 6;
+    public static final int TOP = 0;
+    public static final int BOTTOM = 1;
+    public static final int FRONT = 2;
+    public static final int BACK = 3;
+    public static final int LEFT = 4;
+    public static final int RIGHT = 5;
+
+    private static final int BITS_PER_FACE = 3;
+    private static final int FACE_MASK = 0b111;
+    private static final Letter[] LETTERS = Letter.values();
+
+    // ROLL_SOURCE[direction][i] = index of the face that moves into position i
+    private static final int[][] ROLL_SOURCE = new int[Direction.values().length][];
+    // FLIP_SOURCE[i] = index of the face that moves into position i
+    private static final int[] FLIP_SOURCE = {BOTTOM, TOP, FRONT, BACK, LEFT, RIGHT};
+
+    static {
+        // Left becomes Top, Bottom becomes Left, Right becomes Bottom, Top becomes Right
+        ROLL_SOURCE[Direction.RIGHT.ordinal()] = new int[]{LEFT, RIGHT, FRONT, BACK, BOTTOM, TOP};
+        // Right becomes Top, Bottom becomes Right, Left becomes Bottom, Top becomes Left
+        ROLL_SOURCE[Direction.LEFT.ordinal()] = new int[]{RIGHT, LEFT, FRONT, BACK, TOP, BOTTOM};
+        // Front becomes Top, Bottom becomes Front, Back becomes Bottom, Top becomes Back
+        ROLL_SOURCE[Direction.UP.ordinal()] = new int[]{FRONT, BACK, BOTTOM, TOP, LEFT, RIGHT};
+        // Back becomes Top, Bottom becomes Back, Front becomes Bottom, Top becomes Front
+        ROLL_SOURCE[Direction.DOWN.ordinal()] = new int[]{BACK, FRONT, TOP, BOTTOM, LEFT, RIGHT};
+    }
+
+    private PackedFaces() {
+    }
+
+    public static int pack(List<Letter> faces) {
+        if (faces.size() != FACE_COUNT) {
+            throw new IllegalArgumentException("A box must have exactly " + FACE_COUNT + " faces");
+        }
+        int packed = 0;
+        for (int i = 0; i < FACE_COUNT; i++) {
+            packed = withFace(packed, i, faces.get(i));
+        }
+        return packed;
+    }
+
+    public static Letter face(int packed, int faceIndex) {
+        return LETTERS[(packed >>> (faceIndex * BITS_PER_FACE)) & FACE_MASK];
+    }
+
+    public static int withFace(int packed, int faceIndex, Letter letter) {
+        int shift = faceIndex * BITS_PER_FACE;
+        return (packed & ~(FACE_MASK << shift)) | (letter.ordinal() << shift);
+    }
+
+    public static int roll(int packed, Direction direction) {
+        return permute(packed, ROLL_SOURCE[direction.ordinal()]);
+    }
+
+    public static int flip(int packed) {
+        return permute(packed, FLIP_SOURCE);
+    }
+
+    // source[i] = index of the face that moves into position i
+    public static int permute(int packed, int[] source) {
+        int result = 0;
+        for (int i = 0; i < FACE_COUNT; i++) {
+            int letterBits = (packed >>> (source[i] * BITS_PER_FACE)) & FACE_MASK;
+            result |= letterBits << (i * BITS_PER_FACE);
+        }
+        return result;
+    }
+
+    static int[] rollSource(Direction direction) {
+        return ROLL_SOURCE[direction.ordinal()];
+    }
+
+    /**
+     * Returns a read-only List view over the packed faces, in face-index order.
+     */
+    public static List<Letter> asList(int packed) {
+        return new AbstractList<Letter>() {
+            @Override
+            public Letter get(int index) {
+                if (index < 0 || index >= FACE_COUNT) {
+                    throw new IndexOutOfBoundsException("Face index: " + index);
+                }
+                return face(packed, index);
+            }
+
+            @Override
+            public int size() {
+                return FACE_COUNT;
+            }
+        };
+    }
+}
@@ -9,6 +9,10 @@ public class RegularBox extends Box{
         super(faces);
     }
 
+    public RegularBox(int packedFaces){
+        super(packedFaces);
+    }
+
     @Override
     public boolean canRoll(){
         return true;
@@ -21,7 +25,7 @@ public class RegularBox extends Box{
 
     @Override
     public void restamp(Letter newLetter){
-        boxFaces.set(0, newLetter);
+        rebase(PackedFaces.withFace(getPackedFaces(), PackedFaces.TOP, newLetter));
     }
 
     @Override
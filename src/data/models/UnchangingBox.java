@@ -9,6 +9,10 @@ public class UnchangingBox extends Box{
         super(faces);
     }
 
+    public UnchangingBox(int packedFaces){
+        super(packedFaces);
+    }
+
     @Override
     public boolean canRoll(){
         return true;
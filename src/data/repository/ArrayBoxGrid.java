@@ -0,0 +1,308 @@
+package data.repository;
+
+import data.factory.BoxFactory;
+import data.models.*;
+import enums.Direction;
+import enums.Letter;
+import tools.SpecialTool;
+
+import java.util.SplittableRandom;
+
+/**
+ * ArrayBoxGrid
+ *
+ * Struct-of-arrays backend for the box grid. Instead of one Box object per cell,
+ * every property lives in its own primitive array:
+ *  - faces: orientation state (packed face set + rotation index, see CubeRotation)
+ *  - types: box type byte (regular, unchanging, fixed)
+ *  - tools: tool kind byte (none or one of the five SpecialTools)
+ *  - flags: opened / empty bits
+ *
+ * The box rules (canRoll, allowsDomino, restamp) are switches on the type byte
+ * rather than virtual calls. Type and tool codes are the ones defined in CellState.
+ *
+ * Storage is tiled so boards up to 10,000x10,000 stay practical: the board is cut
+ * into tiles (at most 32x32) and each tile owns its own small arrays, so memory
+ * grows linearly with the board and row, column and plus-shape operations only
+ * touch a few neighbouring tiles. Tile height and width are sized separately, so
+ * a thin board such as 8x10000 gets 8x32 tiles instead of mostly empty 32x32 ones.
+ */
+public class ArrayBoxGrid extends BoxGrid {
+
+    private static final byte FLAG_OPENED = 1;
+    private static final byte FLAG_EMPTY = 2;
+
+    // tiles are (1 << MAX_TILE_SHIFT) cells high and wide at most
+    private static final int MAX_TILE_SHIFT = 5;
+
+    private final int tileRowShift;
+    private final int tileRowMask;
+    private final int tileColShift;
+    private final int tileColMask;
+    private final int tileAreaShift;
+    private final int tileAreaMask;
+    private final int tilesAcross;
+
+    // [tile][offset inside the tile]
+    private final int[][] faces;
+    private final byte[][] types;
+    private final byte[][] tools;
+    private final byte[][] flags;
+
+    // creates a random 8x8 grid with the same distributions as the other backends
+    public ArrayBoxGrid() {
+        this(DEFAULT_SIZE, DEFAULT_SIZE);
+    }
+
+    // creates a random rows x columns grid
+    public ArrayBoxGrid(int rowCount, int columnCount) {
+        this(rowCount, columnCount, new SplittableRandom());
+    }
+
+    // creates a rows x columns grid, the same one for the same random generator state
+    public ArrayBoxGrid(int rowCount, int columnCount, SplittableRandom random) {
+        this(rowCount, columnCount, null, random);
+    }
+
+    // copies the state of any other grid
+    public ArrayBoxGrid(BoxGrid source) {
+        this(source.getRowCount(), source.getColumnCount(), source, null);
+    }
+
+    /**
+     * A grid of all-zero cells (unopened RegularBoxes showing A everywhere), for
+     * builders that set every cell themselves, see BoxFactory.createBoard.
+     */
+    public static ArrayBoxGrid blank(int rowCount, int columnCount) {
+        return new ArrayBoxGrid(rowCount, columnCount, null, null);
+    }
+
+    private ArrayBoxGrid(int rowCount, int columnCount, BoxGrid source, SplittableRandom random) {
+        super(rowCount, columnCount);
+
+        // a short or narrow board gets tiles that fit it exactly along that axis
+        this.tileRowShift = tileShift(rowCount);
+        this.tileRowMask = (1 << tileRowShift) - 1;
+        this.tileColShift = tileShift(columnCount);
+        this.tileColMask = (1 << tileColShift) - 1;
+        this.tileAreaShift = tileRowShift + tileColShift;
+        this.tileAreaMask = (1 << tileAreaShift) - 1;
+        this.tilesAcross = ((columnCount - 1) >>> tileColShift) + 1;
+        int tilesDown = ((rowCount - 1) >>> tileRowShift) + 1;
+
+        long tileCount = (long) tilesAcross * tilesDown;
+        if ((tileCount << tileAreaShift) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Grid is too large: " + rowCount + "x" + columnCount);
+        }
+        this.faces = new int[(int) tileCount][1 << tileAreaShift];
+        this.types = new byte[(int) tileCount][1 << tileAreaShift];
+        this.tools = new byte[(int) tileCount][1 << tileAreaShift];
+        this.flags = new byte[(int) tileCount][1 << tileAreaShift];
+
+        if (source == null && random == null) {
+            return;
+        }
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            for (int colIndex = 0; colIndex < columnCount; colIndex++) {
+                if (source == null) {
+                    setBox(rowIndex, colIndex, BoxFactory.createRandomBox(random));
+                    continue;
+                }
+                int i = index(rowIndex, colIndex);
+                faces[tile(i)][offset(i)] = CubeRotation.state(source.getPackedFaces(rowIndex, colIndex), CubeRotation.IDENTITY);
+                types[tile(i)][offset(i)] = CellState.typeOf(source.getBoxTypeMarker(rowIndex, colIndex));
+                tools[tile(i)][offset(i)] = CellState.toolKindOf(source.getTool(rowIndex, colIndex));
+                flags[tile(i)][offset(i)] = flagsOf(source.isOpened(rowIndex, colIndex), source.isEmpty(rowIndex, colIndex));
+            }
+        }
+    }
+
+    @Override
+    public void copyFrom(BoxGrid source) {
+        copyFrom((ArrayBoxGrid) source);
+    }
+
+    /**
+     * Overwrites this grid with the contents of a grid of the same size, without
+     * allocating. Searches use this to reset their scratch grids.
+     */
+    public void copyFrom(ArrayBoxGrid source) {
+        if (source.rowCount != rowCount || source.columnCount != columnCount) {
+            throw new IllegalArgumentException("Grid sizes differ: " + source.rowCount + "x" + source.columnCount
+                    + " and " + rowCount + "x" + columnCount);
+        }
+        for (int tile = 0; tile < faces.length; tile++) {
+            System.arraycopy(source.faces[tile], 0, faces[tile], 0, faces[tile].length);
+            System.arraycopy(source.types[tile], 0, types[tile], 0, types[tile].length);
+            System.arraycopy(source.tools[tile], 0, tools[tile], 0, tools[tile].length);
+            System.arraycopy(source.flags[tile], 0, flags[tile], 0, flags[tile].length);
+        }
+        contentsCopiedFrom(source);
+    }
+
+    // smallest shift whose tile side covers length, at most MAX_TILE_SHIFT
+    private static int tileShift(int length) {
+        int shift = 0;
+        while (shift < MAX_TILE_SHIFT && (1 << shift) < length) {
+            shift++;
+        }
+        return shift;
+    }
+
+    // cell index = tile number in the high bits, offset inside the tile in the low bits
+    private int index(int rowIndex, int colIndex) {
+        validateBounds(rowIndex, colIndex);
+        int tile = (rowIndex >>> tileRowShift) * tilesAcross + (colIndex >>> tileColShift);
+        int offset = ((rowIndex & tileRowMask) << tileColShift) | (colIndex & tileColMask);
+        return (tile << tileAreaShift) | offset;
+    }
+
+    private int tile(int index) {
+        return index >>> tileAreaShift;
+    }
+
+    private int offset(int index) {
+        return index & tileAreaMask;
+    }
+
+    // ---------------------------------------------------------
+    // Encoding helpers (type and tool codes are shared with CellState)
+    // ---------------------------------------------------------
+
+    private static byte flagsOf(boolean opened, boolean empty) {
+        return (byte) ((opened ? FLAG_OPENED : 0) | (empty ? FLAG_EMPTY : 0));
+    }
+
+    // ---------------------------------------------------------
+    // Cell access
+    // ---------------------------------------------------------
+
+    @Override
+    public Letter getTopFace(int rowIndex, int colIndex) {
+        int i = index(rowIndex, colIndex);
+        return CubeRotation.stateFace(faces[tile(i)][offset(i)], PackedFaces.TOP);
+    }
+
+    @Override
+    public int getCellState(int rowIndex, int colIndex) {
+        int i = index(rowIndex, colIndex);
+        int tile = tile(i);
+        int offset = offset(i);
+        byte flag = flags[tile][offset];
+        return CellState.of(faces[tile][offset], types[tile][offset], tools[tile][offset],
+                (flag & FLAG_OPENED) != 0, (flag & FLAG_EMPTY) != 0);
+    }
+
+    @Override
+    public int getPackedFaces(int rowIndex, int colIndex) {
+        int i = index(rowIndex, colIndex);
+        return CubeRotation.stateFaces(faces[tile(i)][offset(i)]);
+    }
+
+    @Override
+    public char getBoxTypeMarker(int rowIndex, int colIndex) {
+        int i = index(rowIndex, colIndex);
+        return CellState.typeMarkerOf(types[tile(i)][offset(i)]);
+    }
+
+    @Override
+    public char getStatusMarker(int rowIndex, int colIndex) {
+        return isEmpty(rowIndex, colIndex) ? 'O' : 'M';
+    }
+
+    @Override
+    public boolean isFixed(int rowIndex, int colIndex) {
+        int i = index(rowIndex, colIndex);
+        return types[tile(i)][offset(i)] == CellState.TYPE_FIXED;
+    }
+
+    @Override
+    public boolean canRoll(int rowIndex, int colIndex) {
+        return !isFixed(rowIndex, colIndex);
+    }
+
+    @Override
+    public boolean allowsDomino(int rowIndex, int colIndex) {
+        return !isFixed(rowIndex, colIndex);
+    }
+
+    @Override
+    public boolean isOpened(int rowIndex, int colIndex) {
+        int i = index(rowIndex, colIndex);
+        return (flags[tile(i)][offset(i)] & FLAG_OPENED) != 0;
+    }
+
+    @Override
+    public boolean isEmpty(int rowIndex, int colIndex) {
+        int i = index(rowIndex, colIndex);
+        return (flags[tile(i)][offset(i)] & FLAG_EMPTY) != 0;
+    }
+
+    @Override
+    public boolean hasTool(int rowIndex, int colIndex) {
+        int i = index(rowIndex, colIndex);
+        return tools[tile(i)][offset(i)] != CellState.TOOL_NONE;
+    }
+
+    @Override
+    public SpecialTool getTool(int rowIndex, int colIndex) {
+        int i = index(rowIndex, colIndex);
+        return CellState.toolOf(tools[tile(i)][offset(i)]);
+    }
+
+    @Override
+    protected void rollCell(int rowIndex, int colIndex, Direction direction) {
+        int i = index(rowIndex, colIndex);
+        int[] tileFaces = faces[tile(i)];
+        tileFaces[offset(i)] = CubeRotation.stateRoll(tileFaces[offset(i)], direction);
+    }
+
+    @Override
+    protected void flipCell(int rowIndex, int colIndex) {
+        int i = index(rowIndex, colIndex);
+        int[] tileFaces = faces[tile(i)];
+        int flipped = PackedFaces.flip(CubeRotation.stateFaces(tileFaces[offset(i)]));
+        tileFaces[offset(i)] = CubeRotation.state(flipped, CubeRotation.IDENTITY);
+    }
+
+    @Override
+    protected void restampCell(int rowIndex, int colIndex, Letter newLetter) {
+        int i = index(rowIndex, colIndex);
+        // Only regular boxes change their top letter
+        if (types[tile(i)][offset(i)] == CellState.TYPE_REGULAR) {
+            int[] tileFaces = faces[tile(i)];
+            int stamped = PackedFaces.withFace(CubeRotation.stateFaces(tileFaces[offset(i)]), PackedFaces.TOP, newLetter);
+            tileFaces[offset(i)] = CubeRotation.state(stamped, CubeRotation.IDENTITY);
+        }
+    }
+
+    @Override
+    protected SpecialTool removeToolCell(int rowIndex, int colIndex) {
+        int i = index(rowIndex, colIndex);
+        byte toolKind = tools[tile(i)][offset(i)];
+        if (toolKind == CellState.TOOL_NONE) {
+            return null;
+        }
+        tools[tile(i)][offset(i)] = CellState.TOOL_NONE;
+        flags[tile(i)][offset(i)] = (byte) (FLAG_OPENED | FLAG_EMPTY);
+        return CellState.toolOf(toolKind);
+    }
+
+    @Override
+    protected void setBoxCell(int rowIndex, int colIndex, Box box) {
+        int i = index(rowIndex, colIndex);
+        faces[tile(i)][offset(i)] = CubeRotation.state(box.getBaseFaces(), box.getOrientation());
+        types[tile(i)][offset(i)] = CellState.typeOf(box.getBoxTypeMarker());
+        tools[tile(i)][offset(i)] = CellState.toolKindOf(box.getTool());
+        flags[tile(i)][offset(i)] = flagsOf(box.isOpened(), box.isEmpty());
+    }
+
+    @Override
+    protected void setCellStateCell(int rowIndex, int colIndex, int state) {
+        int i = index(rowIndex, colIndex);
+        faces[tile(i)][offset(i)] = CellState.orientation(state);
+        types[tile(i)][offset(i)] = CellState.type(state);
+        tools[tile(i)][offset(i)] = CellState.toolKind(state);
+        flags[tile(i)][offset(i)] = flagsOf(CellState.isOpened(state), CellState.isEmpty(state));
+    }
+}
@@ -0,0 +1,445 @@
+package data.repository;
+
+import data.factory.BoxFactory;
+import data.models.Box;
+import data.models.CubeRotation;
+import data.models.PackedFaces;
+import enums.Direction;
+import enums.Letter;
+import tools.SpecialTool;
+
+import java.util.SplittableRandom;
+
+/**
+ * BitBoardGrid
+ *
+ * Bitboard backend for the standard 8x8 board. The 64 cells map onto the 64 bits
+ * of a long (bit = row * 8 + col), and the board is described by masks:
+ *  - one mask per Letter for the top faces
+ *  - fixed, unchanging, opened, empty and has-tool masks
+ *
+ * Scoring is Long.bitCount on a letter mask, and the row, column and plus-shape
+ * stamps are a few mask operations instead of a loop over boxes.
+ *
+ * The letter masks are the source of truth for the top faces. The full faces of each
+ * box are kept as orientation states, and a stamp only marks the stamped cells as
+ * stale; the new top letter is written into the orientation the next time the
+ * box is rolled, flipped or its faces are read. While cell states are tracked
+ * (see BoxGrid.isTrackingCellStates) the bulk stamps go cell by cell instead.
+ */
+public class BitBoardGrid extends BoxGrid {
+
+    private static final int SIDE = 8;
+    private static final long[] ROW_MASKS = new long[SIDE];
+    private static final long[] COLUMN_MASKS = new long[SIDE];
+    private static final long[] PLUS_MASKS = new long[SIDE * SIDE];
+    private static final Letter[] LETTERS = Letter.values();
+
+    static {
+        for (int i = 0; i < SIDE; i++) {
+            ROW_MASKS[i] = 0xFFL << (i * SIDE);
+            COLUMN_MASKS[i] = 0x0101010101010101L << i;
+        }
+        for (int rowIndex = 0; rowIndex < SIDE; rowIndex++) {
+            for (int colIndex = 0; colIndex < SIDE; colIndex++) {
+                long plus = bit(rowIndex, colIndex);
+                if (rowIndex > 0) plus |= bit(rowIndex - 1, colIndex);
+                if (rowIndex < SIDE - 1) plus |= bit(rowIndex + 1, colIndex);
+                if (colIndex > 0) plus |= bit(rowIndex, colIndex - 1);
+                if (colIndex < SIDE - 1) plus |= bit(rowIndex, colIndex + 1);
+                PLUS_MASKS[rowIndex * SIDE + colIndex] = plus;
+            }
+        }
+    }
+
+    private final long[] letterMasks = new long[LETTERS.length];
+    private long fixedMask;
+    private long unchangingMask;
+    private long openedMask;
+    private long emptyMask;
+    private long toolMask;
+    // cells whose orientation still shows the top letter from before a stamp
+    private long staleTopMask;
+
+    private final int[] orientations = new int[SIDE * SIDE];
+    private final byte[] toolKinds = new byte[SIDE * SIDE];
+
+    // creates a random 8x8 grid with the same distributions as the other backends
+    public BitBoardGrid() {
+        this(new SplittableRandom());
+    }
+
+    // creates a random 8x8 grid, the same one for the same random generator state
+    public BitBoardGrid(SplittableRandom random) {
+        super(SIDE, SIDE);
+        for (int rowIndex = 0; rowIndex < SIDE; rowIndex++) {
+            for (int colIndex = 0; colIndex < SIDE; colIndex++) {
+                setBox(rowIndex, colIndex, BoxFactory.createRandomBox(random));
+            }
+        }
+    }
+
+    // copies the state of another 8x8 grid
+    public BitBoardGrid(BoxGrid source) {
+        super(SIDE, SIDE);
+        if (source.getRowCount() != SIDE || source.getColumnCount() != SIDE) {
+            throw new IllegalArgumentException("Bitboards only support 8x8 grids, got "
+                    + source.getRowCount() + "x" + source.getColumnCount());
+        }
+        for (int rowIndex = 0; rowIndex < SIDE; rowIndex++) {
+            for (int colIndex = 0; colIndex < SIDE; colIndex++) {
+                int state = CellState.of(
+                        CubeRotation.state(source.getPackedFaces(rowIndex, colIndex), CubeRotation.IDENTITY),
+                        CellState.typeOf(source.getBoxTypeMarker(rowIndex, colIndex)),
+                        CellState.toolKindOf(source.getTool(rowIndex, colIndex)),
+                        source.isOpened(rowIndex, colIndex),
+                        source.isEmpty(rowIndex, colIndex));
+                load(rowIndex * SIDE + colIndex, state);
+            }
+        }
+    }
+
+    @Override
+    public void copyFrom(BoxGrid source) {
+        copyFrom((BitBoardGrid) source);
+    }
+
+    /**
+     * Overwrites this grid with the contents of another bitboard, without allocating.
+     */
+    public void copyFrom(BitBoardGrid source) {
+        System.arraycopy(source.letterMasks, 0, letterMasks, 0, letterMasks.length);
+        fixedMask = source.fixedMask;
+        unchangingMask = source.unchangingMask;
+        openedMask = source.openedMask;
+        emptyMask = source.emptyMask;
+        toolMask = source.toolMask;
+        staleTopMask = source.staleTopMask;
+        System.arraycopy(source.orientations, 0, orientations, 0, orientations.length);
+        System.arraycopy(source.toolKinds, 0, toolKinds, 0, toolKinds.length);
+        contentsCopiedFrom(source);
+    }
+
+    private static long bit(int rowIndex, int colIndex) {
+        return 1L << (rowIndex * SIDE + colIndex);
+    }
+
+    private int index(int rowIndex, int colIndex) {
+        validateBounds(rowIndex, colIndex);
+        return rowIndex * SIDE + colIndex;
+    }
+
+    // writes a whole CellState into the masks and arrays
+    private void load(int i, int state) {
+        long bit = 1L << i;
+        orientations[i] = CellState.orientation(state);
+        toolKinds[i] = CellState.toolKind(state);
+        staleTopMask &= ~bit;
+        setTopBit(bit, CellState.topFace(state));
+
+        byte type = CellState.type(state);
+        fixedMask = (type == CellState.TYPE_FIXED) ? fixedMask | bit : fixedMask & ~bit;
+        unchangingMask = (type == CellState.TYPE_UNCHANGING) ? unchangingMask | bit : unchangingMask & ~bit;
+        openedMask = CellState.isOpened(state) ? openedMask | bit : openedMask & ~bit;
+        emptyMask = CellState.isEmpty(state) ? emptyMask | bit : emptyMask & ~bit;
+        toolMask = (toolKinds[i] != CellState.TOOL_NONE) ? toolMask | bit : toolMask & ~bit;
+    }
+
+    private void setTopBit(long bit, Letter letter) {
+        for (int l = 0; l < letterMasks.length; l++) {
+            letterMasks[l] &= ~bit;
+        }
+        letterMasks[letter.ordinal()] |= bit;
+    }
+
+    private Letter topOf(long bit) {
+        for (int l = 0; l < letterMasks.length; l++) {
+            if ((letterMasks[l] & bit) != 0) {
+                return LETTERS[l];
+            }
+        }
+        throw new IllegalStateException("Cell has no top letter");
+    }
+
+    // writes the stamped top letter into the orientation of a stale cell
+    private void settle(int i) {
+        long bit = 1L << i;
+        if ((staleTopMask & bit) == 0) {
+            return;
+        }
+        int stamped = PackedFaces.withFace(CubeRotation.stateFaces(orientations[i]), PackedFaces.TOP, topOf(bit));
+        orientations[i] = CubeRotation.state(stamped, CubeRotation.IDENTITY);
+        staleTopMask &= ~bit;
+    }
+
+    // stamps every regular box in the mask to the letter
+    private void stampMask(long mask, Letter newLetter) {
+        long regular = mask & ~fixedMask & ~unchangingMask;
+        for (int l = 0; l < letterMasks.length; l++) {
+            letterMasks[l] &= ~regular;
+        }
+        letterMasks[newLetter.ordinal()] |= regular;
+        staleTopMask |= regular;
+    }
+
+    // ---------------------------------------------------------
+    // Masks, for solvers that work on whole bitboards
+    // ---------------------------------------------------------
+
+    public static long rowMask(int rowIndex) {
+        return ROW_MASKS[rowIndex];
+    }
+
+    public static long columnMask(int colIndex) {
+        return COLUMN_MASKS[colIndex];
+    }
+
+    // the cell and its up to four neighbours
+    public static long plusMask(int rowIndex, int colIndex) {
+        return PLUS_MASKS[rowIndex * SIDE + colIndex];
+    }
+
+    public long getTopLetterMask(Letter letter) {
+        return letterMasks[letter.ordinal()];
+    }
+
+    public long getFixedMask() {
+        return fixedMask;
+    }
+
+    public long getUnchangingMask() {
+        return unchangingMask;
+    }
+
+    public long getOpenedMask() {
+        return openedMask;
+    }
+
+    public long getToolMask() {
+        return toolMask;
+    }
+
+    // ---------------------------------------------------------
+    // Scoring and stamps as mask operations
+    // ---------------------------------------------------------
+
+    @Override
+    public int countTopLetter(Letter letterToCount) {
+        if (isCheckingConsistency()) {
+            checkTopLetterCounts();
+        }
+        return Long.bitCount(letterMasks[letterToCount.ordinal()]);
+    }
+
+    @Override
+    public int countTopLetterInRect(Letter letter, int firstRow, int firstCol, int lastRow, int lastCol) {
+        validateRect(firstRow, firstCol, lastRow, lastCol);
+        if (isCheckingConsistency()) {
+            checkTopLetterCounts();
+        }
+        long rows = 0;
+        for (int rowIndex = firstRow; rowIndex <= lastRow; rowIndex++) {
+            rows |= ROW_MASKS[rowIndex];
+        }
+        long columns = 0;
+        for (int colIndex = firstCol; colIndex <= lastCol; colIndex++) {
+            columns |= COLUMN_MASKS[colIndex];
+        }
+        return Long.bitCount(letterMasks[letter.ordinal()] & rows & columns);
+    }
+
+    @Override
+    public int countTopLetterInPlus(Letter letter, int rowIndex, int colIndex) {
+        if (isCheckingConsistency()) {
+            checkTopLetterCounts();
+        }
+        return Long.bitCount(letterMasks[letter.ordinal()] & PLUS_MASKS[index(rowIndex, colIndex)]);
+    }
+
+    /**
+     * The letter masks are this backend's top face counts, so besides the base
+     * check this scans every cell: it must be in exactly one letter mask, a cell
+     * that is not stale must show that letter in its orientation, and the tool
+     * mask must match the stored tool kinds.
+     */
+    @Override
+    public void checkTopLetterCounts() {
+        super.checkTopLetterCounts();
+        for (int i = 0; i < SIDE * SIDE; i++) {
+            long bit = 1L << i;
+            String location = Cell.toString(Cell.of(i / SIDE, i % SIDE));
+            int letterCount = 0;
+            for (long letterMask : letterMasks) {
+                if ((letterMask & bit) != 0) {
+                    letterCount++;
+                }
+            }
+            if (letterCount != 1) {
+                throw new IllegalStateException("Box at " + location + " is in " + letterCount + " letter masks");
+            }
+            Letter oriented = CubeRotation.stateFace(orientations[i], PackedFaces.TOP);
+            if ((staleTopMask & bit) == 0 && oriented != topOf(bit)) {
+                throw new IllegalStateException("Box at " + location + " shows " + oriented
+                        + " but its letter mask says " + topOf(bit));
+            }
+            if ((toolKinds[i] != CellState.TOOL_NONE) != ((toolMask & bit) != 0)) {
+                throw new IllegalStateException("Tool mask of the box at " + location + " does not match its tool");
+            }
+        }
+    }
+
+    @Override
+    public void restampRow(int rowIndex, Letter newLetter) {
+        if (isTrackingCellStates()) {
+            super.restampRow(rowIndex, newLetter);
+            return;
+        }
+        validateBounds(rowIndex, 0);
+        stampMask(ROW_MASKS[rowIndex], newLetter);
+        rowChanged(rowIndex);
+    }
+
+    @Override
+    public void restampColumn(int colIndex, Letter newLetter) {
+        if (isTrackingCellStates()) {
+            super.restampColumn(colIndex, newLetter);
+            return;
+        }
+        validateBounds(0, colIndex);
+        stampMask(COLUMN_MASKS[colIndex], newLetter);
+        for (int rowIndex = 0; rowIndex < SIDE; rowIndex++) {
+            rowChanged(rowIndex);
+        }
+    }
+
+    @Override
+    public void restampPlus(int rowIndex, int colIndex, Letter newLetter) {
+        if (isTrackingCellStates()) {
+            super.restampPlus(rowIndex, colIndex, newLetter);
+            return;
+        }
+        stampMask(PLUS_MASKS[index(rowIndex, colIndex)], newLetter);
+        for (int row = Math.max(0, rowIndex - 1); row <= Math.min(SIDE - 1, rowIndex + 1); row++) {
+            rowChanged(row);
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Cell access
+    // ---------------------------------------------------------
+
+    @Override
+    public Letter getTopFace(int rowIndex, int colIndex) {
+        return topOf(1L << index(rowIndex, colIndex));
+    }
+
+    @Override
+    public int getCellState(int rowIndex, int colIndex) {
+        int i = index(rowIndex, colIndex);
+        settle(i);
+        long bit = 1L << i;
+        return CellState.of(orientations[i], CellState.typeOf(getBoxTypeMarker(rowIndex, colIndex)), toolKinds[i],
+                (openedMask & bit) != 0, (emptyMask & bit) != 0);
+    }
+
+    @Override
+    public int getPackedFaces(int rowIndex, int colIndex) {
+        int i = index(rowIndex, colIndex);
+        settle(i);
+        return CubeRotation.stateFaces(orientations[i]);
+    }
+
+    @Override
+    public char getBoxTypeMarker(int rowIndex, int colIndex) {
+        long bit = 1L << index(rowIndex, colIndex);
+        if ((fixedMask & bit) != 0) return CellState.typeMarkerOf(CellState.TYPE_FIXED);
+        if ((unchangingMask & bit) != 0) return CellState.typeMarkerOf(CellState.TYPE_UNCHANGING);
+        return CellState.typeMarkerOf(CellState.TYPE_REGULAR);
+    }
+
+    @Override
+    public char getStatusMarker(int rowIndex, int colIndex) {
+        return isEmpty(rowIndex, colIndex) ? 'O' : 'M';
+    }
+
+    @Override
+    public boolean isFixed(int rowIndex, int colIndex) {
+        return (fixedMask & (1L << index(rowIndex, colIndex))) != 0;
+    }
+
+    @Override
+    public boolean canRoll(int rowIndex, int colIndex) {
+        return !isFixed(rowIndex, colIndex);
+    }
+
+    @Override
+    public boolean allowsDomino(int rowIndex, int colIndex) {
+        return !isFixed(rowIndex, colIndex);
+    }
+
+    @Override
+    public boolean isOpened(int rowIndex, int colIndex) {
+        return (openedMask & (1L << index(rowIndex, colIndex))) != 0;
+    }
+
+    @Override
+    public boolean isEmpty(int rowIndex, int colIndex) {
+        return (emptyMask & (1L << index(rowIndex, colIndex))) != 0;
+    }
+
+    @Override
+    public boolean hasTool(int rowIndex, int colIndex) {
+        return (toolMask & (1L << index(rowIndex, colIndex))) != 0;
+    }
+
+    @Override
+    public SpecialTool getTool(int rowIndex, int colIndex) {
+        return CellState.toolOf(toolKinds[index(rowIndex, colIndex)]);
+    }
+
+    @Override
+    protected void rollCell(int rowIndex, int colIndex, Direction direction) {
+        int i = index(rowIndex, colIndex);
+        settle(i);
+        orientations[i] = CubeRotation.stateRoll(orientations[i], direction);
+        setTopBit(1L << i, CubeRotation.stateFace(orientations[i], PackedFaces.TOP));
+    }
+
+    @Override
+    protected void flipCell(int rowIndex, int colIndex) {
+        int i = index(rowIndex, colIndex);
+        settle(i);
+        orientations[i] = CubeRotation.state(PackedFaces.flip(CubeRotation.stateFaces(orientations[i])), CubeRotation.IDENTITY);
+        setTopBit(1L << i, CubeRotation.stateFace(orientations[i], PackedFaces.TOP));
+    }
+
+    @Override
+    protected void restampCell(int rowIndex, int colIndex, Letter newLetter) {
+        stampMask(1L << index(rowIndex, colIndex), newLetter);
+    }
+
+    @Override
+    protected SpecialTool removeToolCell(int rowIndex, int colIndex) {
+        int i = index(rowIndex, colIndex);
+        byte toolKind = toolKinds[i];
+        if (toolKind == CellState.TOOL_NONE) {
+            return null;
+        }
+        long bit = 1L << i;
+        toolKinds[i] = CellState.TOOL_NONE;
+        toolMask &= ~bit;
+        openedMask |= bit;
+        emptyMask |= bit;
+        return CellState.toolOf(toolKind);
+    }
+
+    @Override
+    protected void setBoxCell(int rowIndex, int colIndex, Box box) {
+        load(index(rowIndex, colIndex), CellState.ofBox(box));
+    }
+
+    @Override
+    protected void setCellStateCell(int rowIndex, int colIndex, int state) {
+        load(index(rowIndex, colIndex), state);
+    }
+}
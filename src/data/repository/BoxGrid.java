@@ -1,218 +1,659 @@
 package data.repository;
 
-import data.factory.BoxFactory;
-import data.models.*;
+import data.models.Box;
+import data.models.CubeRotation;
+import enums.Direction;
 import enums.Letter;
-
-import java.util.ArrayList;
-import java.util.List;
-
-/* * ANSWER TO COLLECTIONS QUESTION:
- * we used List<List<Box>> (NESTED ARRAY LIST) to represent the 8x8 grid.
- * This satisfies the requirement to use the Java Collections Framework,
- * keeps indexing simple, and makes printing straightforward for a fixed size board.
- * Additionally, ArrayList provides an efficient alghorithm for random access, which is
- * essential for simulating the domino effect during rolls and for tools like
- * MassRowStamp or MassColumnStamp that require fast traversal of specific rows
- * and columns.
+import tools.SpecialTool;
+
+/**
+ * BoxGrid
+ *
+ * Abstract base class for the box grid. The standard board is 8x8, but any
+ * rows x columns size is allowed so the same rules run on very large boards.
+ * BoxPuzzle and the tools only talk to the grid through the cell-level methods
+ * declared here, so they run unchanged on every storage backend:
+ *  - ListBoxGrid:  List<List<Box>> of Box objects
+ *  - ArrayBoxGrid: parallel primitive arrays (struct-of-arrays)
+ *
+ * Location parsing, edge/corner checks, scoring and printing are shared here.
+ * Every mutation goes through the final roll/flip/restamp/removeTool/setBox
+ * methods of this class, which keep the derived bookkeeping (such as the top
+ * face letter counts) up to date before delegating to the backend.
  */
+public abstract class BoxGrid {
+    public static final int DEFAULT_SIZE = 8;
+
+    // up, down, left, right
+    private static final int[] NEIGHBOR_ROW_OFFSETS = {-1, 1, 0, 0};
+    private static final int[] NEIGHBOR_COL_OFFSETS = {0, 0, -1, 1};
+
+    protected final int rowCount;
+    protected final int columnCount;
+
+    // top face count per Letter, built on the first score query and then kept up to date
+    private int[] topLetterCounts;
+    // when set, every score query is checked against a full scan
+    private boolean consistencyChecks;
+    // per-letter Fenwick trees for region queries, built on the first region query
+    private TopLetterIndex topLetterIndex;
+    // bumped on every change to a row, so renderers only redraw rows that changed
+    private final int[] rowVersions;
+    private BoxGridRenderer renderer;
+    // Zobrist hashes of the whole grid, built on the first hash query
+    private ZobristHash zobristHash;
+    // records cell changes for undo and redo while started
+    private MoveJournal journal;
+    // FixedBox positions per row and column, built on the first domino run query
+    private FixedBoxIndex fixedBoxIndex;
+
+    protected BoxGrid(int rowCount, int columnCount) {
+        if (rowCount < 1 || columnCount < 1) {
+            throw new IllegalArgumentException("Grid size must be positive: " + rowCount + "x" + columnCount);
+        }
+        if (rowCount > Cell.MAX_SIZE || columnCount > Cell.MAX_SIZE) {
+            throw new IllegalArgumentException("Grid size is too large: " + rowCount + "x" + columnCount);
+        }
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.rowVersions = new int[rowCount];
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    // ---------------------------------------------------------
+    // Cell access, implemented by every backend
+    // ---------------------------------------------------------
+
+    public abstract Letter getTopFace(int rowIndex, int colIndex);
+
+    /**
+     * Returns the six faces packed as in PackedFaces, in their current orientation.
+     */
+    public abstract int getPackedFaces(int rowIndex, int colIndex);
+
+    public abstract char getBoxTypeMarker(int rowIndex, int colIndex);
+
+    public abstract char getStatusMarker(int rowIndex, int colIndex);
+
+    public abstract boolean isFixed(int rowIndex, int colIndex);
+
+    public abstract boolean canRoll(int rowIndex, int colIndex);
+
+    public abstract boolean allowsDomino(int rowIndex, int colIndex);
+
+    public abstract boolean isOpened(int rowIndex, int colIndex);
+
+    public abstract boolean isEmpty(int rowIndex, int colIndex);
+
+    public abstract boolean hasTool(int rowIndex, int colIndex);
+
+    /**
+     * The tool in the box, or null. Tools are stateless, so every backend returns
+     * the shared INSTANCE of the tool class (see CellState.toolOf).
+     */
+    public abstract SpecialTool getTool(int rowIndex, int colIndex);
+
+    /**
+     * The whole cell packed as a CellState int. Backends that store CellStates
+     * override this with a direct read.
+     */
+    public int getCellState(int rowIndex, int colIndex) {
+        return CellState.of(CubeRotation.state(getPackedFaces(rowIndex, colIndex), CubeRotation.IDENTITY),
+                CellState.typeOf(getBoxTypeMarker(rowIndex, colIndex)),
+                CellState.toolKindOf(getTool(rowIndex, colIndex)),
+                isOpened(rowIndex, colIndex),
+                isEmpty(rowIndex, colIndex));
+    }
+
+    protected abstract void rollCell(int rowIndex, int colIndex, Direction direction);
+
+    protected abstract void flipCell(int rowIndex, int colIndex);
+
+    protected abstract void restampCell(int rowIndex, int colIndex, Letter newLetter);
+
+    protected abstract SpecialTool removeToolCell(int rowIndex, int colIndex);
+
+    protected abstract void setBoxCell(int rowIndex, int colIndex, Box box);
+
+    protected abstract void setCellStateCell(int rowIndex, int colIndex, int state);
+
+    // ---------------------------------------------------------
+    // Mutations
+    // ---------------------------------------------------------
+
+    public final void roll(int rowIndex, int colIndex, Direction direction) {
+        Letter before = topFaceIfTracked(rowIndex, colIndex);
+        int stateBefore = cellStateIfTracked(rowIndex, colIndex);
+        rollCell(rowIndex, colIndex, direction);
+        rowChanged(rowIndex);
+        topFaceChanged(rowIndex, colIndex, before);
+        cellStateChanged(rowIndex, colIndex, stateBefore);
+    }
+
+    public final void flip(int rowIndex, int colIndex) {
+        Letter before = topFaceIfTracked(rowIndex, colIndex);
+        int stateBefore = cellStateIfTracked(rowIndex, colIndex);
+        flipCell(rowIndex, colIndex);
+        rowChanged(rowIndex);
+        topFaceChanged(rowIndex, colIndex, before);
+        cellStateChanged(rowIndex, colIndex, stateBefore);
+    }
+
+    public final void restamp(int rowIndex, int colIndex, Letter newLetter) {
+        Letter before = topFaceIfTracked(rowIndex, colIndex);
+        int stateBefore = cellStateIfTracked(rowIndex, colIndex);
+        restampCell(rowIndex, colIndex, newLetter);
+        rowChanged(rowIndex);
+        topFaceChanged(rowIndex, colIndex, before);
+        cellStateChanged(rowIndex, colIndex, stateBefore);
+    }
+
+    /**
+     * Takes the tool out of the box, marking it opened and empty.
+     * Returns null if the box has no tool.
+     */
+    public final SpecialTool removeTool(int rowIndex, int colIndex) {
+        int stateBefore = cellStateIfTracked(rowIndex, colIndex);
+        SpecialTool tool = removeToolCell(rowIndex, colIndex);
+        rowChanged(rowIndex);
+        cellStateChanged(rowIndex, colIndex, stateBefore);
+        return tool;
+    }
+
+    /**
+     * Replaces the box at the location. Backends that do not store Box objects copy its state.
+     */
+    public final void setBox(int rowIndex, int colIndex, Box box) {
+        Letter before = topFaceIfTracked(rowIndex, colIndex);
+        int stateBefore = cellStateIfTracked(rowIndex, colIndex);
+        boolean fixedBefore = fixedIfIndexed(rowIndex, colIndex);
+        setBoxCell(rowIndex, colIndex, box);
+        rowChanged(rowIndex);
+        topFaceChanged(rowIndex, colIndex, before);
+        cellStateChanged(rowIndex, colIndex, stateBefore);
+        fixedChanged(rowIndex, colIndex, fixedBefore);
+    }
+
+    /**
+     * Overwrites the whole cell with a packed CellState, for example one read
+     * earlier with getCellState.
+     */
+    public final void setCellState(int rowIndex, int colIndex, int state) {
+        Letter before = topFaceIfTracked(rowIndex, colIndex);
+        int stateBefore = cellStateIfTracked(rowIndex, colIndex);
+        boolean fixedBefore = fixedIfIndexed(rowIndex, colIndex);
+        setCellStateCell(rowIndex, colIndex, state);
+        rowChanged(rowIndex);
+        topFaceChanged(rowIndex, colIndex, before);
+        cellStateChanged(rowIndex, colIndex, stateBefore);
+        fixedChanged(rowIndex, colIndex, fixedBefore);
+    }
+
+    /**
+     * Rolls length boxes in a line, starting at (rowIndex, colIndex) and going in
+     * the direction of the roll. With dominoRunLength this applies a whole domino
+     * push without checking each box on the way.
+     */
+    public final void rollRange(int rowIndex, int colIndex, Direction direction, int length) {
+        int dRow = direction == Direction.UP ? -1 : direction == Direction.DOWN ? 1 : 0;
+        int dCol = direction == Direction.LEFT ? -1 : direction == Direction.RIGHT ? 1 : 0;
+        validateBounds(rowIndex, colIndex);
+        if (length > 0) {
+            validateBounds(rowIndex + (length - 1) * dRow, colIndex + (length - 1) * dCol);
+        }
+        for (int i = 0; i < length; i++) {
+            roll(rowIndex + i * dRow, colIndex + i * dCol, direction);
+        }
+    }
 
+    /**
+     * Backends that change cells without going through the methods above
+     * (for example bitboard stamps) must report the rows they touched.
+     */
+    protected final void rowChanged(int rowIndex) {
+        rowVersions[rowIndex]++;
+    }
 
-public class BoxGrid {
-    public static final int SIZE = 8;
-    private final List<List<Box>> grid;
+    public int getRowVersion(int rowIndex) {
+        return rowVersions[rowIndex];
+    }
 
-    // creates the initial grid
-    public BoxGrid(){
-        grid = new ArrayList<>(SIZE);
-        for (int rowCounter = 0; rowCounter < SIZE; rowCounter++){
-            List<Box> row = new ArrayList<>(SIZE);
-            for (int colCounter = 0; colCounter < SIZE; colCounter++){
-                row.add(BoxFactory.createRandomBox());
+    /**
+     * Overwrites this grid with the contents of a grid of the same backend and size,
+     * without allocating. Searches use this to reset their scratch grids; backends
+     * that cannot do it cheaply throw UnsupportedOperationException.
+     */
+    public void copyFrom(BoxGrid source) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot be reset in place");
+    }
+
+    /**
+     * Backends that overwrite every cell with the contents of a same-sized grid
+     * call this afterwards: the top face counts, FixedBox positions and state
+     * hashes are taken over from the source and every row is reported as changed.
+     */
+    protected final void contentsCopiedFrom(BoxGrid source) {
+        if (source.topLetterCounts == null) {
+            topLetterCounts = null;
+        } else if (topLetterCounts == null) {
+            topLetterCounts = source.topLetterCounts.clone();
+        } else {
+            System.arraycopy(source.topLetterCounts, 0, topLetterCounts, 0, topLetterCounts.length);
+        }
+        topLetterIndex = null;
+        if (source.fixedBoxIndex == null) {
+            fixedBoxIndex = null;
+        } else if (fixedBoxIndex == null) {
+            fixedBoxIndex = new FixedBoxIndex(source.fixedBoxIndex);
+        } else {
+            fixedBoxIndex.copyFrom(source.fixedBoxIndex);
+        }
+        // the recorded moves do not lead to the copied contents
+        if (journal != null) {
+            journal.clear();
+        }
+        // hashing stays on or off as it was on this grid
+        if (zobristHash != null) {
+            if (source.zobristHash != null) {
+                zobristHash.copyFrom(source.zobristHash);
+            } else {
+                zobristHash = new ZobristHash(this);
             }
-            grid.add(row);
+        }
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            rowChanged(rowIndex);
         }
     }
-    public Box getBox(int rowIndex, int colIndex){
-        validateBounds(rowIndex, colIndex);
-        return grid.get(rowIndex).get(colIndex);
+
+    /**
+     * True while something needs the full before and after state of every changed
+     * cell (for example the Zobrist hash). Backends with bulk shortcuts that skip
+     * the per-cell methods must fall back to them while this is true.
+     */
+    protected final boolean isTrackingCellStates() {
+        return zobristHash != null || journal != null;
+    }
+
+    private int cellStateIfTracked(int rowIndex, int colIndex) {
+        return isTrackingCellStates() ? getCellState(rowIndex, colIndex) : 0;
     }
 
+    private void cellStateChanged(int rowIndex, int colIndex, int stateBefore) {
+        if (!isTrackingCellStates()) {
+            return;
+        }
+        int stateAfter = getCellState(rowIndex, colIndex);
+        if (zobristHash != null) {
+            zobristHash.update(rowIndex, colIndex, stateBefore, stateAfter);
+        }
+        if (journal != null) {
+            journal.record(rowIndex, colIndex, stateBefore, stateAfter);
+        }
+    }
 
-    public List<Box> getRow(int rowNumber) {
-        return grid.get(rowNumber);
+    private boolean fixedIfIndexed(int rowIndex, int colIndex) {
+        return fixedBoxIndex != null && !allowsDomino(rowIndex, colIndex);
     }
 
-    public List<Box> getColumn(int colNumber) {
-        List<Box> column = new ArrayList<>();
-        for (int r = 0; r < SIZE; r++) {
-            column.add(grid.get(r).get(colNumber));
+    private void fixedChanged(int rowIndex, int colIndex, boolean fixedBefore) {
+        if (fixedBoxIndex == null) {
+            return;
+        }
+        boolean fixedAfter = !allowsDomino(rowIndex, colIndex);
+        if (fixedAfter != fixedBefore) {
+            fixedBoxIndex.set(rowIndex, colIndex, fixedAfter);
         }
-        return column;
     }
 
-    public List<Box> getFourNeighbors(int rowIndex, int colIndex) {
+    // ---------------------------------------------------------
+    // Domino runs
+    // ---------------------------------------------------------
+
+    /**
+     * How many boxes a push from (rowIndex, colIndex) in the direction rolls: the
+     * box itself and every box behind it up to the next FixedBox or the boundary.
+     * Whether the first box can roll at all is up to the caller (see canRoll).
+     * The FixedBox positions are indexed on the first call and kept up to date.
+     */
+    public int dominoRunLength(int rowIndex, int colIndex, Direction direction) {
         validateBounds(rowIndex, colIndex);
-        List<Box> neighbors = new ArrayList<>();
+        if (fixedBoxIndex == null) {
+            fixedBoxIndex = new FixedBoxIndex(this);
+        }
+        return fixedBoxIndex.runLength(rowIndex, colIndex, direction);
+    }
 
-        // up
-        if (rowIndex > 0) {
-            neighbors.add(grid.get(rowIndex - 1).get(colIndex));
+    // ---------------------------------------------------------
+    // Undo and redo
+    // ---------------------------------------------------------
+
+    /**
+     * Starts recording every change for undo and redo (see MoveJournal) and returns
+     * the journal. Calling it again returns the journal already recording.
+     */
+    public MoveJournal startJournal() {
+        if (journal == null) {
+            journal = new MoveJournal(this);
         }
-        // down
-        if (rowIndex < SIZE - 1) {
-            neighbors.add(grid.get(rowIndex + 1).get(colIndex));
+        return journal;
+    }
+
+    /**
+     * The journal recording changes, or null if none was started.
+     */
+    public MoveJournal getJournal() {
+        return journal;
+    }
+
+    public void stopJournal() {
+        journal = null;
+    }
+
+    // ---------------------------------------------------------
+    // Hashing, for searches and transposition tables
+    // ---------------------------------------------------------
+
+    /**
+     * Zobrist hash of the whole grid state (faces, box types, tools, opened flags).
+     * The first call hashes every cell, later calls only cost what the changes cost.
+     */
+    public long getStateHash() {
+        return zobristHash().hash();
+    }
+
+    /**
+     * The same for every position that is a rotation or reflection of this one
+     * (8 symmetries on square boards, 4 on rectangular ones), so symmetric
+     * positions can share one transposition table entry.
+     */
+    public long getCanonicalHash() {
+        return zobristHash().canonicalHash();
+    }
+
+    private ZobristHash zobristHash() {
+        if (zobristHash == null) {
+            zobristHash = new ZobristHash(this);
+        }
+        return zobristHash;
+    }
+
+    private Letter topFaceIfTracked(int rowIndex, int colIndex) {
+        if (topLetterCounts == null && topLetterIndex == null) {
+            return null;
+        }
+        return getTopFace(rowIndex, colIndex);
+    }
+
+    private void topFaceChanged(int rowIndex, int colIndex, Letter before) {
+        if (before == null) {
+            return;
+        }
+        Letter after = getTopFace(rowIndex, colIndex);
+        if (after == before) {
+            return;
         }
-        // left
-        if (colIndex > 0) {
-            neighbors.add(grid.get(rowIndex).get(colIndex - 1));
+        if (topLetterCounts != null) {
+            topLetterCounts[before.ordinal()]--;
+            topLetterCounts[after.ordinal()]++;
         }
-        // right
-        if (colIndex < SIZE - 1) {
-            neighbors.add(grid.get(rowIndex).get(colIndex + 1));
+        if (topLetterIndex != null) {
+            topLetterIndex.update(rowIndex, colIndex, before, after);
         }
+    }
+
+    // ---------------------------------------------------------
+    // Allocation-free traversal
+    // ---------------------------------------------------------
 
-        return neighbors;
+    public void forEachInRow(int rowIndex, CellVisitor visitor) {
+        validateBounds(rowIndex, 0);
+        for (int colIndex = 0; colIndex < columnCount; colIndex++) {
+            visitor.visit(rowIndex, colIndex);
+        }
     }
 
+    public void forEachInColumn(int colIndex, CellVisitor visitor) {
+        validateBounds(0, colIndex);
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            visitor.visit(rowIndex, colIndex);
+        }
+    }
 
-    public void setBox(int rowIndex, int colIndex, Box box) {
+    // visits up, down, left and right, skipping the ones outside the grid
+    public void forEachNeighbor(int rowIndex, int colIndex, CellVisitor visitor) {
         validateBounds(rowIndex, colIndex);
-        grid.get(rowIndex).set(colIndex, box);
+        for (int k = 0; k < NEIGHBOR_ROW_OFFSETS.length; k++) {
+            int neighborRow = rowIndex + NEIGHBOR_ROW_OFFSETS[k];
+            int neighborCol = colIndex + NEIGHBOR_COL_OFFSETS[k];
+            if (isInside(neighborRow, neighborCol)) {
+                visitor.visit(neighborRow, neighborCol);
+            }
+        }
+    }
+
+    /**
+     * Writes the neighbours into out as (row, col) pairs and returns how many there are.
+     * out must have room for 8 ints; it can be reused between calls.
+     */
+    public int neighborCells(int rowIndex, int colIndex, int[] out) {
+        validateBounds(rowIndex, colIndex);
+        int count = 0;
+        for (int k = 0; k < NEIGHBOR_ROW_OFFSETS.length; k++) {
+            int neighborRow = rowIndex + NEIGHBOR_ROW_OFFSETS[k];
+            int neighborCol = colIndex + NEIGHBOR_COL_OFFSETS[k];
+            if (isInside(neighborRow, neighborCol)) {
+                out[2 * count] = neighborRow;
+                out[2 * count + 1] = neighborCol;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Bulk stamps used by the stamp tools, plain loops so nothing is allocated
+
+    public void restampRow(int rowIndex, Letter newLetter) {
+        validateBounds(rowIndex, 0);
+        for (int colIndex = 0; colIndex < columnCount; colIndex++) {
+            restamp(rowIndex, colIndex, newLetter);
+        }
+    }
+
+    public void restampColumn(int colIndex, Letter newLetter) {
+        validateBounds(0, colIndex);
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            restamp(rowIndex, colIndex, newLetter);
+        }
+    }
+
+    // the center box and its four neighbours
+    public void restampPlus(int rowIndex, int colIndex, Letter newLetter) {
+        restamp(rowIndex, colIndex, newLetter);
+        for (int k = 0; k < NEIGHBOR_ROW_OFFSETS.length; k++) {
+            int neighborRow = rowIndex + NEIGHBOR_ROW_OFFSETS[k];
+            int neighborCol = colIndex + NEIGHBOR_COL_OFFSETS[k];
+            if (isInside(neighborRow, neighborCol)) {
+                restamp(neighborRow, neighborCol, newLetter);
+            }
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Shared logic
+    // ---------------------------------------------------------
+
+    public boolean isInside(int rowIndex, int colIndex) {
+        return rowIndex >= 0 && rowIndex < rowCount && colIndex >= 0 && colIndex < columnCount;
     }
 
     public boolean isEdge(int rowIndex, int colIndex){
         validateBounds(rowIndex, colIndex);
-        return (rowIndex == 0 || rowIndex == SIZE - 1 || colIndex == 0 || colIndex == SIZE - 1 );
+        return (rowIndex == 0 || rowIndex == rowCount - 1 || colIndex == 0 || colIndex == columnCount - 1 );
     }
 
     // options : top-right, bottom-right, top-left, top-right
     public boolean isCorner(int rowIndex, int colIndex){
         validateBounds(rowIndex, colIndex);
-        return ((rowIndex == 0) || rowIndex == SIZE - 1) && (colIndex == 0 || colIndex == SIZE - 1);
+        return ((rowIndex == 0) || rowIndex == rowCount - 1) && (colIndex == 0 || colIndex == columnCount - 1);
     }
 
-
+    /**
+     * Returns how many boxes show the letter on top. The counts are built with one scan
+     * on the first call and then updated by every mutation, so later calls are O(1).
+     */
     public int countTopLetter(Letter letterToCount){
-        int count = 0;
-        for (int rowIndex = 0; rowIndex < SIZE; rowIndex++) {
-            for (int colIndex = 0; colIndex < SIZE; colIndex++) {
-                if (getBox(rowIndex, colIndex).getTopFace() == letterToCount) {
-                    count++;
+        if (topLetterCounts == null) {
+            int[] counts = new int[Letter.values().length];
+            for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+                for (int colIndex = 0; colIndex < columnCount; colIndex++) {
+                    counts[getTopFace(rowIndex, colIndex).ordinal()]++;
                 }
             }
+            topLetterCounts = counts;
         }
-        return count;
+        if (consistencyChecks) {
+            checkTopLetterCounts();
+        }
+        return topLetterCounts[letterToCount.ordinal()];
     }
 
-    public int[] parseLocation(String input) {
-        if (input == null) {
-            throw new IllegalArgumentException("Input cannot be null");
+    /**
+     * Counts the boxes showing the letter on top inside the rectangle of rows
+     * firstRow..lastRow and columns firstCol..lastCol (inclusive).
+     * Runs in O(log rows * log columns); the index behind it is built on the first call
+     * and costs one int per cell per letter.
+     */
+    public int countTopLetterInRect(Letter letter, int firstRow, int firstCol, int lastRow, int lastCol) {
+        validateRect(firstRow, firstCol, lastRow, lastCol);
+        if (topLetterIndex == null) {
+            topLetterIndex = new TopLetterIndex(this);
         }
+        return topLetterIndex.count(letter, firstRow, firstCol, lastRow, lastCol);
+    }
 
-        String fixedString = input.trim().toUpperCase();
+    public int countTopLetterInRow(Letter letter, int rowIndex) {
+        return countTopLetterInRect(letter, rowIndex, 0, rowIndex, columnCount - 1);
+    }
 
-        int row;
-        int col;
+    public int countTopLetterInColumn(Letter letter, int colIndex) {
+        return countTopLetterInRect(letter, 0, colIndex, rowCount - 1, colIndex);
+    }
 
-        // Format: R2-C4
-        if (fixedString.startsWith("R") && fixedString.contains("-C")) {
+    /**
+     * Counts the letter on the plus shape a PlusShapeStamp would cover at the location.
+     */
+    public int countTopLetterInPlus(Letter letter, int rowIndex, int colIndex) {
+        validateBounds(rowIndex, colIndex);
+        // the horizontal bar including the center, then the cells above and below it
+        int count = countTopLetterInRect(letter, rowIndex, Math.max(0, colIndex - 1),
+                rowIndex, Math.min(columnCount - 1, colIndex + 1));
+        if (rowIndex > 0) {
+            count += countTopLetterInRect(letter, rowIndex - 1, colIndex, rowIndex - 1, colIndex);
+        }
+        if (rowIndex < rowCount - 1) {
+            count += countTopLetterInRect(letter, rowIndex + 1, colIndex, rowIndex + 1, colIndex);
+        }
+        return count;
+    }
 
-            int dashIndex = fixedString.indexOf('-');
+    /**
+     * Turns on checking every score query against a full scan (for testing).
+     */
+    public void setConsistencyChecks(boolean enabled) {
+        this.consistencyChecks = enabled;
+    }
 
-            // R2 part
-            String rowPart = fixedString.substring(1, dashIndex);
-            // C4 part
-            String colPart = fixedString.substring(dashIndex + 2);
+    /**
+     * Backends that answer score queries their own way run checkTopLetterCounts
+     * themselves while this is true.
+     */
+    protected final boolean isCheckingConsistency() {
+        return consistencyChecks;
+    }
 
-            row = Integer.parseInt(rowPart) - 1;
-            col = Integer.parseInt(colPart) - 1;
+    /**
+     * Compares the maintained top face counts with a full scan of the grid.
+     * Throws IllegalStateException if they differ. Backends that keep other
+     * counts (such as bitboard letter masks) extend this to check those.
+     */
+    public void checkTopLetterCounts() {
+        if (topLetterCounts == null) {
+            return;
         }
-        // Format: 2-4
-        else if (fixedString.contains("-")) {
-
-            String[] parts = fixedString.split("-");
+        for (Letter letter : Letter.values()) {
+            int scanned = scanTopLetter(letter);
+            if (scanned != topLetterCounts[letter.ordinal()]) {
+                throw new IllegalStateException("Top face count of " + letter + " is "
+                        + topLetterCounts[letter.ordinal()] + " but the grid has " + scanned);
+            }
+        }
+    }
 
-            if (parts.length != 2) {
-                throw new IllegalArgumentException("Invalid location format");
+    private int scanTopLetter(Letter letterToCount){
+        int count = 0;
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            for (int colIndex = 0; colIndex < columnCount; colIndex++) {
+                if (getTopFace(rowIndex, colIndex) == letterToCount) {
+                    count++;
+                }
             }
+        }
+        return count;
+    }
 
-            row = Integer.parseInt(parts[0]) - 1;
-            col = Integer.parseInt(parts[1]) - 1;
+    /**
+     * Parses a location typed by the player ("R2-C4" or "2-4") into a packed Cell.
+     * Only the UI needs this, everything else passes Cell ints around.
+     */
+    public int parseCell(CharSequence input) {
+        if (input == null) {
+            throw new IllegalArgumentException("Input cannot be null");
         }
-        else {
+        int cell = Cell.parse(input);
+        if (cell == Cell.NONE) {
             throw new IllegalArgumentException("Invalid location format");
         }
 
         // boundary check
-        if (row < 0 || row >= SIZE || col < 0 || col >= SIZE) {
-            throw new IndexOutOfBoundsException(
-                    "Out of bounds: R" + (row + 1) + "-C" + (col + 1)
-            );
+        if (!isInside(Cell.row(cell), Cell.col(cell))) {
+            throw new IndexOutOfBoundsException("Out of bounds: " + Cell.toString(cell));
         }
 
-        return new int[]{row, col};
+        return cell;
     }
 
-    public Box getBoxAt(String location){
-        int[] coordinates = parseLocation(location);
-        // coordinates are returned as [row,column]
-        return getBox(coordinates[0], coordinates[1]);
-    }
-
-    private void validateBounds(int rowIndex, int colIndex) {
-        if (rowIndex < 0 || rowIndex >= SIZE || colIndex < 0 || colIndex >= SIZE) {
+    protected void validateBounds(int rowIndex, int colIndex) {
+        if (!isInside(rowIndex, colIndex)) {
             throw new IndexOutOfBoundsException("Out of bounds: R" + (rowIndex + 1) + "-C" + (colIndex + 1));
         }
     }
 
-    // Printing helpers
-    private char typeChar(Box box) {
-        return box.getBoxTypeMarker();
-    }
-
-    private char statusChar(Box box) {
-        return box.getStatusMarker();
+    protected void validateRect(int firstRow, int firstCol, int lastRow, int lastCol) {
+        validateBounds(firstRow, firstCol);
+        validateBounds(lastRow, lastCol);
+        if (firstRow > lastRow || firstCol > lastCol) {
+            throw new IllegalArgumentException("Empty rectangle: R" + (firstRow + 1) + "-C" + (firstCol + 1)
+                    + " to R" + (lastRow + 1) + "-C" + (lastCol + 1));
+        }
     }
 
-    private String cellString(Box box) {
-        String type = String.valueOf(box.getBoxTypeMarker());
-        String face = box.getTopFace().toString();
-
-        if (type.equals("X")) {
-            return String.format(" %s-%s-  |", type, face);
+    // Printing is done by a BoxGridRenderer, which caches the rendered rows
+    public BoxGridRenderer getRenderer() {
+        if (renderer == null) {
+            renderer = new BoxGridRenderer(this);
         }
-
-        // Show status marker for others
-        char status = box.getStatusMarker(); // M or O
-        return String.format(" %s-%s-%s |", type, face, status);
+        return renderer;
     }
 
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder();
-
-        // Column headers (C1, C2...)
-        sb.append("\n        ");
-        for (int i = 1; i <= SIZE; i++) {
-            sb.append(String.format("C%-7d", i));
-        }
-        sb.append("\n    ");
-        // Top line
-        for (int i = 0; i < SIZE * 8 + 1; i++) sb.append("-");
-        sb.append("\n");
-
-        // Rows
-        for (int i = 0; i < SIZE; i++) {
-            sb.append(String.format("R%-3d|", (i + 1)));
-            for (int j = 0; j < SIZE; j++) {
-                sb.append(cellString(grid.get(i).get(j)));
-            }
-            sb.append("\n    ");
-            // Seperating line
-            for (int k = 0; k < SIZE * 8 + 1; k++) sb.append("-");
-            sb.append("\n");
-        }
-        return sb.toString();
+        return getRenderer().renderToString();
     }
 }
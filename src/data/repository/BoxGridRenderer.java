@@ -0,0 +1,228 @@
+package data.repository;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * BoxGridRenderer
+ *
+ * Prints a BoxGrid in the same text layout as BoxGrid.toString(), but caches the
+ * rendered bytes of every row and only redraws the rows that changed since the
+ * last render (BoxGrid bumps a version number per row on every mutation).
+ * Everything is written into one reusable byte buffer, with no String.format.
+ *
+ * renderDiff(...) is the ANSI terminal mode: after a full render, it only moves the
+ * cursor up to the changed rows and rewrites those lines. It tracks what is on the
+ * terminal separately from the row cache, so renderToString() (and with it
+ * BoxGrid.toString()) can be called in between without hiding changes from it.
+ */
+public class BoxGridRenderer {
+
+    private static final byte[] ANSI_ESCAPE = {0x1B, '['};
+    private static final int CELL_WIDTH = 8;
+
+    private final BoxGrid grid;
+    private final int labelWidth;
+    private final byte[] header;
+    private final byte[] separatorLine;
+    // rendered "R1  | R-A-M | ... |" line of each row, without the line break
+    private final byte[][] rowLines;
+    private final int[] renderedVersions;
+    private final boolean[] renderedOnce;
+    // row versions currently shown on the terminal by render(...) and renderDiff(...)
+    private final int[] drawnVersions;
+
+    private byte[] buffer = new byte[256];
+    private int length;
+    // set once the whole board has been printed by render(...)
+    private boolean printed;
+    // lines printed after the board, 1 after println(...)
+    private int linesAfterBoard;
+
+    public BoxGridRenderer(BoxGrid grid) {
+        this.grid = grid;
+        this.labelWidth = Math.max(3, String.valueOf(grid.getRowCount()).length());
+        this.rowLines = new byte[grid.getRowCount()][];
+        this.renderedVersions = new int[grid.getRowCount()];
+        this.renderedOnce = new boolean[grid.getRowCount()];
+        this.drawnVersions = new int[grid.getRowCount()];
+
+        // indent + separator + line break, shared by the top line and every row
+        length = 0;
+        appendRepeated((byte) ' ', labelWidth + 1);
+        appendRepeated((byte) '-', grid.getColumnCount() * CELL_WIDTH + 1);
+        append((byte) '\n');
+        this.separatorLine = Arrays.copyOf(buffer, length);
+
+        // Column headers (C1, C2...)
+        length = 0;
+        append((byte) '\n');
+        appendRepeated((byte) ' ', labelWidth + 1 + 4);
+        for (int col = 1; col <= grid.getColumnCount(); col++) {
+            int start = length;
+            append((byte) 'C');
+            appendNumber(col);
+            appendRepeated((byte) ' ', CELL_WIDTH - (length - start));
+        }
+        append((byte) '\n');
+        append(separatorLine, separatorLine.length);
+        this.header = Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Returns the whole board, identical to BoxGrid.toString().
+     */
+    public String renderToString() {
+        fillBuffer();
+        return new String(buffer, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Writes the whole board to the stream.
+     */
+    public void render(PrintStream out) {
+        fillBuffer();
+        out.write(buffer, 0, length);
+        System.arraycopy(renderedVersions, 0, drawnVersions, 0, drawnVersions.length);
+        printed = true;
+        linesAfterBoard = 0;
+    }
+
+    /**
+     * Writes the whole board followed by a line break, like System.out.println(grid).
+     */
+    public void println(PrintStream out) {
+        render(out);
+        out.println();
+        linesAfterBoard = 1;
+    }
+
+    /**
+     * ANSI mode: rewrites only the rows that changed since they were last drawn, in
+     * place. The cursor must still be where render(...) or println(...) left it,
+     * nothing else may have been printed since; if nothing was printed yet the whole
+     * board is rendered instead.
+     */
+    public void renderDiff(PrintStream out) {
+        if (!printed) {
+            render(out);
+            return;
+        }
+        int rowCount = grid.getRowCount();
+        length = 0;
+        for (int row = 0; row < rowCount; row++) {
+            int version = grid.getRowVersion(row);
+            if (drawnVersions[row] == version) {
+                continue;
+            }
+            if (!isCurrent(row)) {
+                refreshRow(row);
+            }
+            drawnVersions[row] = version;
+            // each row is followed by its separator line, so row r sits 2 * (rowCount - r) lines up
+            int linesUp = 2 * (rowCount - row) + linesAfterBoard;
+            append(ANSI_ESCAPE, ANSI_ESCAPE.length);
+            appendNumber(linesUp);
+            append((byte) 'A');
+            append((byte) '\r');
+            append(rowLines[row], rowLines[row].length);
+            append(ANSI_ESCAPE, ANSI_ESCAPE.length);
+            appendNumber(linesUp);
+            append((byte) 'B');
+            append((byte) '\r');
+        }
+        out.write(buffer, 0, length);
+        out.flush();
+    }
+
+    private void fillBuffer() {
+        length = 0;
+        append(header, header.length);
+        for (int row = 0; row < grid.getRowCount(); row++) {
+            if (!isCurrent(row)) {
+                refreshRow(row);
+            }
+            append(rowLines[row], rowLines[row].length);
+            append((byte) '\n');
+            append(separatorLine, separatorLine.length);
+        }
+    }
+
+    private boolean isCurrent(int row) {
+        return renderedOnce[row] && renderedVersions[row] == grid.getRowVersion(row);
+    }
+
+    // renders one row into its cache, using the end of the shared buffer as scratch space
+    private void refreshRow(int row) {
+        int start = length;
+        append((byte) 'R');
+        appendNumber(row + 1);
+        appendRepeated((byte) ' ', labelWidth + 1 - (length - start));
+        append((byte) '|');
+        for (int col = 0; col < grid.getColumnCount(); col++) {
+            char type = grid.getBoxTypeMarker(row, col);
+            append((byte) ' ');
+            append((byte) type);
+            append((byte) '-');
+            append((byte) ('A' + grid.getTopFace(row, col).ordinal()));
+            append((byte) '-');
+            // FixedBoxes do not show a status marker
+            append(type == 'X' ? (byte) ' ' : (byte) grid.getStatusMarker(row, col));
+            append((byte) ' ');
+            append((byte) '|');
+        }
+
+        byte[] line = rowLines[row];
+        if (line == null || line.length != length - start) {
+            line = new byte[length - start];
+            rowLines[row] = line;
+        }
+        System.arraycopy(buffer, start, line, 0, line.length);
+        length = start;
+        renderedVersions[row] = grid.getRowVersion(row);
+        renderedOnce[row] = true;
+    }
+
+    // ---------------------------------------------------------
+    // Buffer helpers
+    // ---------------------------------------------------------
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+    private void append(byte b) {
+        ensureCapacity(1);
+        buffer[length++] = b;
+    }
+
+    private void append(byte[] bytes, int count) {
+        ensureCapacity(count);
+        System.arraycopy(bytes, 0, buffer, length, count);
+        length += count;
+    }
+
+    private void appendRepeated(byte b, int count) {
+        ensureCapacity(Math.max(0, count));
+        for (int i = 0; i < count; i++) {
+            buffer[length++] = b;
+        }
+    }
+
+    // positive numbers only, written without creating a String
+    private void appendNumber(int value) {
+        int digits = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        ensureCapacity(digits);
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[length + i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+}
@@ -0,0 +1,106 @@
+package data.repository;
+
+/**
+ * Cell
+ *
+ * A grid coordinate packed into one int: the row in the high 16 bits and the column
+ * in the low 16 bits (both 0-based). The engine and the tool API pass these ints
+ * around instead of "R3-C5" strings; text is only parsed and printed at the UI.
+ */
+public final class Cell {
+
+    // marks "no cell", for example when input could not be parsed
+    public static final int NONE = -1;
+    // largest row or column count a packed cell can address
+    public static final int MAX_SIZE = 1 << 15;
+
+    private static final int COL_BITS = 16;
+    private static final int COL_MASK = (1 << COL_BITS) - 1;
+
+    private Cell() {
+    }
+
+    public static int of(int rowIndex, int colIndex) {
+        return (rowIndex << COL_BITS) | colIndex;
+    }
+
+    public static int row(int cell) {
+        return cell >>> COL_BITS;
+    }
+
+    public static int col(int cell) {
+        return cell & COL_MASK;
+    }
+
+    /**
+     * Formats the cell the way players type it, e.g. "R3-C5".
+     */
+    public static String toString(int cell) {
+        return "R" + (row(cell) + 1) + "-C" + (col(cell) + 1);
+    }
+
+    /**
+     * Parses "R2-C4" or "2-4" (1-based, case-insensitive, surrounding spaces allowed)
+     * without allocating. Returns NONE if the text is not a location.
+     * Bounds are not checked here, see BoxGrid.parseCell.
+     */
+    public static int parse(CharSequence input) {
+        if (input == null) {
+            return NONE;
+        }
+        int start = 0;
+        int end = input.length();
+        while (start < end && Character.isWhitespace(input.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(input.charAt(end - 1))) {
+            end--;
+        }
+
+        int pos = start;
+        // Format: R2-C4
+        boolean prefixed = pos < end && Character.toUpperCase(input.charAt(pos)) == 'R';
+        if (prefixed) {
+            pos++;
+        }
+
+        int row = 0;
+        int rowDigits = 0;
+        while (pos < end && isAsciiDigit(input.charAt(pos))) {
+            row = row * 10 + (input.charAt(pos++) - '0');
+            if (row > MAX_SIZE) {
+                return NONE;
+            }
+            rowDigits++;
+        }
+        if (rowDigits == 0 || pos >= end || input.charAt(pos) != '-') {
+            return NONE;
+        }
+        pos++;
+        if (prefixed) {
+            if (pos >= end || Character.toUpperCase(input.charAt(pos)) != 'C') {
+                return NONE;
+            }
+            pos++;
+        }
+
+        int col = 0;
+        int colDigits = 0;
+        while (pos < end && isAsciiDigit(input.charAt(pos))) {
+            col = col * 10 + (input.charAt(pos++) - '0');
+            if (col > MAX_SIZE) {
+                return NONE;
+            }
+            colDigits++;
+        }
+        if (colDigits == 0 || pos != end || row < 1 || col < 1) {
+            return NONE;
+        }
+        return of(row - 1, col - 1);
+    }
+
+    // Character.isDigit also accepts other scripts' digits, which '0' arithmetic does not handle
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
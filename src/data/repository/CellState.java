@@ -0,0 +1,206 @@
+package data.repository;
+
+import data.models.*;
+import enums.Direction;
+import enums.Letter;
+import tools.*;
+
+/**
+ * CellState
+ *
+ * Packs everything a grid cell holds into one int:
+ *  - bits  0..22: orientation state (packed face set + rotation index, see CubeRotation)
+ *  - bits 23..24: box type (regular, unchanging, fixed)
+ *  - bits 25..27: tool kind (none or one of the five SpecialTools)
+ *  - bit  28:     opened
+ *  - bit  29:     empty
+ *
+ * The box rules are applied directly to the packed value, so backends that keep
+ * one int per cell (for example MappedBoxGrid) do not need Box objects at all.
+ */
+public final class CellState {
+
+    public static final byte TYPE_REGULAR = 0;
+    public static final byte TYPE_UNCHANGING = 1;
+    public static final byte TYPE_FIXED = 2;
+    private static final String TYPE_MARKERS = "RUX";
+
+    public static final byte TOOL_NONE = 0;
+    public static final byte TOOL_PLUS_SHAPE = 1;
+    public static final byte TOOL_MASS_ROW = 2;
+    public static final byte TOOL_MASS_COLUMN = 3;
+    public static final byte TOOL_FLIPPER = 4;
+    public static final byte TOOL_FIXER = 5;
+
+    private static final int ORIENTATION_MASK = (1 << 23) - 1;
+    private static final int TYPE_SHIFT = 23;
+    private static final int TYPE_MASK = 0b11;
+    private static final int TOOL_SHIFT = 25;
+    private static final int TOOL_MASK = 0b111;
+    private static final int OPENED_BIT = 1 << 28;
+    private static final int EMPTY_BIT = 1 << 29;
+
+    private CellState() {
+    }
+
+    public static int of(int orientationState, byte type, byte toolKind, boolean opened, boolean empty) {
+        return orientationState
+                | (type << TYPE_SHIFT)
+                | (toolKind << TOOL_SHIFT)
+                | (opened ? OPENED_BIT : 0)
+                | (empty ? EMPTY_BIT : 0);
+    }
+
+    public static int ofBox(Box box) {
+        return of(CubeRotation.state(box.getBaseFaces(), box.getOrientation()),
+                typeOf(box.getBoxTypeMarker()), toolKindOf(box.getTool()), box.isOpened(), box.isEmpty());
+    }
+
+    /**
+     * Builds a Box holding the packed state, for backends that store Box objects.
+     */
+    public static Box toBox(int cell) {
+        int orientationState = orientation(cell);
+        int baseFaces = CubeRotation.stateBase(orientationState);
+        Box box;
+        switch (type(cell)) {
+            case TYPE_FIXED:
+                box = new FixedBox(baseFaces);
+                break;
+            case TYPE_UNCHANGING:
+                box = new UnchangingBox(baseFaces);
+                break;
+            default:
+                box = new RegularBox(baseFaces);
+                break;
+        }
+        restoreBox(box, cell);
+        return box;
+    }
+
+    /**
+     * Writes the packed state into a Box of the same type.
+     */
+    public static void restoreBox(Box box, int cell) {
+        int orientationState = orientation(cell);
+        box.setState(CubeRotation.stateBase(orientationState), CubeRotation.stateRotation(orientationState),
+                toolOf(toolKind(cell)), isOpened(cell), isEmpty(cell));
+    }
+
+    // ---------------------------------------------------------
+    // Field access
+    // ---------------------------------------------------------
+
+    public static int orientation(int cell) {
+        return cell & ORIENTATION_MASK;
+    }
+
+    public static byte type(int cell) {
+        return (byte) ((cell >>> TYPE_SHIFT) & TYPE_MASK);
+    }
+
+    public static byte toolKind(int cell) {
+        return (byte) ((cell >>> TOOL_SHIFT) & TOOL_MASK);
+    }
+
+    public static boolean isOpened(int cell) {
+        return (cell & OPENED_BIT) != 0;
+    }
+
+    public static boolean isEmpty(int cell) {
+        return (cell & EMPTY_BIT) != 0;
+    }
+
+    public static Letter topFace(int cell) {
+        return CubeRotation.stateFace(orientation(cell), PackedFaces.TOP);
+    }
+
+    public static char typeMarker(int cell) {
+        return typeMarkerOf(type(cell));
+    }
+
+    public static char statusMarker(int cell) {
+        return isEmpty(cell) ? 'O' : 'M';
+    }
+
+    // ---------------------------------------------------------
+    // Box rules
+    // ---------------------------------------------------------
+
+    public static int roll(int cell, Direction direction) {
+        return withOrientation(cell, CubeRotation.stateRoll(orientation(cell), direction));
+    }
+
+    public static int flip(int cell) {
+        int flipped = PackedFaces.flip(CubeRotation.stateFaces(orientation(cell)));
+        return withOrientation(cell, CubeRotation.state(flipped, CubeRotation.IDENTITY));
+    }
+
+    // Only regular boxes change their top letter
+    public static int restamp(int cell, Letter newLetter) {
+        if (type(cell) != TYPE_REGULAR) {
+            return cell;
+        }
+        int stamped = PackedFaces.withFace(CubeRotation.stateFaces(orientation(cell)), PackedFaces.TOP, newLetter);
+        return withOrientation(cell, CubeRotation.state(stamped, CubeRotation.IDENTITY));
+    }
+
+    /**
+     * The same cell with its orientation written as the current faces and the
+     * identity rotation, so boxes that look the same have equal states.
+     */
+    public static int normalized(int cell) {
+        return withOrientation(cell, CubeRotation.state(CubeRotation.stateFaces(orientation(cell)), CubeRotation.IDENTITY));
+    }
+
+    static int withToolKind(int cell, byte toolKind) {
+        return (cell & ~(TOOL_MASK << TOOL_SHIFT)) | (toolKind << TOOL_SHIFT);
+    }
+
+    // Taking the tool out leaves the box opened and empty
+    public static int removeTool(int cell) {
+        return (cell & ~(TOOL_MASK << TOOL_SHIFT)) | OPENED_BIT | EMPTY_BIT;
+    }
+
+    private static int withOrientation(int cell, int orientationState) {
+        return (cell & ~ORIENTATION_MASK) | orientationState;
+    }
+
+    // ---------------------------------------------------------
+    // Type and tool codes
+    // ---------------------------------------------------------
+
+    public static byte typeOf(char typeMarker) {
+        int type = TYPE_MARKERS.indexOf(typeMarker);
+        if (type < 0) {
+            throw new IllegalArgumentException("Unknown box type: " + typeMarker);
+        }
+        return (byte) type;
+    }
+
+    public static char typeMarkerOf(byte type) {
+        return TYPE_MARKERS.charAt(type);
+    }
+
+    public static byte toolKindOf(SpecialTool tool) {
+        return tool == null ? TOOL_NONE : tool.getToolKind();
+    }
+
+    // the shared tool instance, tools hold no state
+    public static SpecialTool toolOf(byte toolKind) {
+        switch (toolKind) {
+            case TOOL_PLUS_SHAPE:
+                return PlusShapeStamp.INSTANCE;
+            case TOOL_MASS_ROW:
+                return MassRowStamp.INSTANCE;
+            case TOOL_MASS_COLUMN:
+                return MassColumnStamp.INSTANCE;
+            case TOOL_FLIPPER:
+                return BoxFlipper.INSTANCE;
+            case TOOL_FIXER:
+                return BoxFixer.INSTANCE;
+            default:
+                return null;
+        }
+    }
+}
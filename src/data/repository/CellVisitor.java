@@ -0,0 +1,10 @@
+package data.repository;
+
+/**
+ * Callback for walking grid cells without building a List of boxes.
+ */
+@FunctionalInterface
+public interface CellVisitor {
+
+    void visit(int rowIndex, int colIndex);
+}
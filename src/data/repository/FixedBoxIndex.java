@@ -0,0 +1,117 @@
+package data.repository;
+
+import enums.Direction;
+
+/**
+ * FixedBoxIndex
+ *
+ * Where the FixedBoxes are, as one bit set per row (bit = column) and one per
+ * column (bit = row). The length of a domino run is the distance to the next set
+ * bit in the direction of the push, found with a few word operations instead of
+ * asking every box on the way. Only BoxFixer (or a replaced box) changes a
+ * FixedBox, and that only flips one bit in each set.
+ */
+final class FixedBoxIndex {
+
+    private final int rowCount;
+    private final int columnCount;
+    private final int rowWords;
+    private final int columnWords;
+    // rowBits[row * rowWords + word], columnBits[col * columnWords + word]
+    private final long[] rowBits;
+    private final long[] columnBits;
+
+    FixedBoxIndex(BoxGrid grid) {
+        this.rowCount = grid.getRowCount();
+        this.columnCount = grid.getColumnCount();
+        this.rowWords = ((columnCount - 1) >>> 6) + 1;
+        this.columnWords = ((rowCount - 1) >>> 6) + 1;
+        this.rowBits = new long[rowCount * rowWords];
+        this.columnBits = new long[columnCount * columnWords];
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            for (int colIndex = 0; colIndex < columnCount; colIndex++) {
+                if (!grid.allowsDomino(rowIndex, colIndex)) {
+                    set(rowIndex, colIndex, true);
+                }
+            }
+        }
+    }
+
+    FixedBoxIndex(FixedBoxIndex source) {
+        this.rowCount = source.rowCount;
+        this.columnCount = source.columnCount;
+        this.rowWords = source.rowWords;
+        this.columnWords = source.columnWords;
+        this.rowBits = source.rowBits.clone();
+        this.columnBits = source.columnBits.clone();
+    }
+
+    void copyFrom(FixedBoxIndex source) {
+        System.arraycopy(source.rowBits, 0, rowBits, 0, rowBits.length);
+        System.arraycopy(source.columnBits, 0, columnBits, 0, columnBits.length);
+    }
+
+    void set(int rowIndex, int colIndex, boolean fixed) {
+        long rowBit = 1L << colIndex;
+        long columnBit = 1L << rowIndex;
+        int rowWord = rowIndex * rowWords + (colIndex >>> 6);
+        int columnWord = colIndex * columnWords + (rowIndex >>> 6);
+        if (fixed) {
+            rowBits[rowWord] |= rowBit;
+            columnBits[columnWord] |= columnBit;
+        } else {
+            rowBits[rowWord] &= ~rowBit;
+            columnBits[columnWord] &= ~columnBit;
+        }
+    }
+
+    /**
+     * Number of boxes a push from (rowIndex, colIndex) rolls: the box itself and every
+     * box behind it up to the next FixedBox or the boundary.
+     */
+    int runLength(int rowIndex, int colIndex, Direction direction) {
+        switch (direction) {
+            case RIGHT:
+                return nextSet(rowBits, rowIndex * rowWords, colIndex + 1, columnCount) - colIndex;
+            case LEFT:
+                return colIndex - previousSet(rowBits, rowIndex * rowWords, colIndex - 1);
+            case DOWN:
+                return nextSet(columnBits, colIndex * columnWords, rowIndex + 1, rowCount) - rowIndex;
+            default:
+                return rowIndex - previousSet(columnBits, colIndex * columnWords, rowIndex - 1);
+        }
+    }
+
+    // first set bit at or after from, or limit if there is none
+    private static int nextSet(long[] bits, int base, int from, int limit) {
+        if (from >= limit) {
+            return limit;
+        }
+        int word = from >>> 6;
+        long remaining = bits[base + word] & (-1L << from);
+        int lastWord = (limit - 1) >>> 6;
+        while (remaining == 0) {
+            if (++word > lastWord) {
+                return limit;
+            }
+            remaining = bits[base + word];
+        }
+        return Math.min(limit, (word << 6) + Long.numberOfTrailingZeros(remaining));
+    }
+
+    // last set bit at or before from, or -1 if there is none
+    private static int previousSet(long[] bits, int base, int from) {
+        if (from < 0) {
+            return -1;
+        }
+        int word = from >>> 6;
+        long remaining = bits[base + word] & (-1L >>> (63 - (from & 63)));
+        while (remaining == 0) {
+            if (--word < 0) {
+                return -1;
+            }
+            remaining = bits[base + word];
+        }
+        return (word << 6) + 63 - Long.numberOfLeadingZeros(remaining);
+    }
+}
@@ -0,0 +1,63 @@
+package data.repository;
+
+import enums.Letter;
+
+/**
+ * GridSnapshot
+ *
+ * Immutable state of a PersistentBoxGrid at the moment snapshot() was called.
+ * It shares its chunk tree with the grid and with every branch, so holding
+ * thousands of snapshots costs only the chunks (and the paths to them) that
+ * differ between them. It is safe to read and branch from any number of threads.
+ */
+public final class GridSnapshot {
+
+    private final int rowCount;
+    private final int columnCount;
+    private final int chunksPerRow;
+    private final int levels;
+    private final PersistentBoxGrid.Node root;
+
+    GridSnapshot(int rowCount, int columnCount, int chunksPerRow, int levels, PersistentBoxGrid.Node root) {
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.chunksPerRow = chunksPerRow;
+        this.levels = levels;
+        this.root = root;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public int getCellState(int rowIndex, int colIndex) {
+        if (rowIndex < 0 || rowIndex >= rowCount || colIndex < 0 || colIndex >= columnCount) {
+            throw new IndexOutOfBoundsException("Out of bounds: R" + (rowIndex + 1) + "-C" + (colIndex + 1));
+        }
+        return PersistentBoxGrid.read(root, levels, rowIndex * chunksPerRow + (colIndex >>> PersistentBoxGrid.CHUNK_SHIFT), colIndex);
+    }
+
+    public Letter getTopFace(int rowIndex, int colIndex) {
+        return CellState.topFace(getCellState(rowIndex, colIndex));
+    }
+
+    /**
+     * A new mutable grid starting from this state. Its changes copy only the chunks
+     * they touch and never affect the snapshot or other branches.
+     */
+    public PersistentBoxGrid branch() {
+        return new PersistentBoxGrid(this);
+    }
+
+    int levels() {
+        return levels;
+    }
+
+    PersistentBoxGrid.Node root() {
+        return root;
+    }
+}
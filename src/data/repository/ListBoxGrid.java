@@ -0,0 +1,207 @@
+package data.repository;
+
+import data.factory.BoxFactory;
+import data.models.*;
+import enums.Direction;
+import enums.Letter;
+import tools.SpecialTool;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/* * ANSWER TO COLLECTIONS QUESTION:
+ * we used List<List<Box>> (NESTED ARRAY LIST) to represent the 8x8 grid.
+ * This satisfies the requirement to use the Java Collections Framework,
+ * keeps indexing simple, and makes printing straightforward for a fixed size board.
+ * Additionally, ArrayList provides an efficient alghorithm for random access, which is
+ * essential for simulating the domino effect during rolls and for tools like
+ * MassRowStamp or MassColumnStamp that require fast traversal of specific rows
+ * and columns.
+ * Very large boards should use ArrayBoxGrid instead, which does not allocate a Box per cell.
+ */
+
+
+public class ListBoxGrid extends BoxGrid {
+    private final List<List<Box>> grid;
+
+    // creates the initial 8x8 grid
+    public ListBoxGrid(){
+        this(DEFAULT_SIZE, DEFAULT_SIZE);
+    }
+
+    // creates a rows x columns grid
+    public ListBoxGrid(int rowCount, int columnCount){
+        this(rowCount, columnCount, new SplittableRandom());
+    }
+
+    // creates a rows x columns grid, the same one for the same random generator state
+    public ListBoxGrid(int rowCount, int columnCount, SplittableRandom random){
+        super(rowCount, columnCount);
+        grid = new ArrayList<>(rowCount);
+        for (int rowCounter = 0; rowCounter < rowCount; rowCounter++){
+            List<Box> row = new ArrayList<>(columnCount);
+            for (int colCounter = 0; colCounter < columnCount; colCounter++){
+                row.add(BoxFactory.createRandomBox(random));
+            }
+            grid.add(row);
+        }
+    }
+    // Returns the live Box. Change boxes through the BoxGrid methods so the score counts stay correct.
+    public Box getBox(int rowIndex, int colIndex){
+        validateBounds(rowIndex, colIndex);
+        return grid.get(rowIndex).get(colIndex);
+    }
+
+
+    public List<Box> getRow(int rowNumber) {
+        return grid.get(rowNumber);
+    }
+
+    // read-only strided view over the column, nothing is copied
+    public List<Box> getColumn(int colNumber) {
+        validateBounds(0, colNumber);
+        return new AbstractList<Box>() {
+            @Override
+            public Box get(int rowNumber) {
+                return grid.get(rowNumber).get(colNumber);
+            }
+
+            @Override
+            public int size() {
+                return rowCount;
+            }
+        };
+    }
+
+    // prefer forEachNeighbor/neighborCells on hot paths, this builds a new list
+    public List<Box> getFourNeighbors(int rowIndex, int colIndex) {
+        validateBounds(rowIndex, colIndex);
+        List<Box> neighbors = new ArrayList<>();
+
+        // up
+        if (rowIndex > 0) {
+            neighbors.add(grid.get(rowIndex - 1).get(colIndex));
+        }
+        // down
+        if (rowIndex < rowCount - 1) {
+            neighbors.add(grid.get(rowIndex + 1).get(colIndex));
+        }
+        // left
+        if (colIndex > 0) {
+            neighbors.add(grid.get(rowIndex).get(colIndex - 1));
+        }
+        // right
+        if (colIndex < columnCount - 1) {
+            neighbors.add(grid.get(rowIndex).get(colIndex + 1));
+        }
+
+        return neighbors;
+    }
+
+    @Override
+    protected void setBoxCell(int rowIndex, int colIndex, Box box) {
+        validateBounds(rowIndex, colIndex);
+        grid.get(rowIndex).set(colIndex, box);
+    }
+
+    // keeps the Box object when the type still matches
+    @Override
+    protected void setCellStateCell(int rowIndex, int colIndex, int state) {
+        Box box = getBox(rowIndex, colIndex);
+        if (CellState.typeOf(box.getBoxTypeMarker()) == CellState.type(state)) {
+            CellState.restoreBox(box, state);
+        } else {
+            grid.get(rowIndex).set(colIndex, CellState.toBox(state));
+        }
+    }
+
+    public Box getBoxAt(String location){
+        int cell = parseCell(location);
+        return getBox(Cell.row(cell), Cell.col(cell));
+    }
+
+    // Cell access delegates to the Box objects
+
+    @Override
+    public Letter getTopFace(int rowIndex, int colIndex) {
+        return getBox(rowIndex, colIndex).getTopFace();
+    }
+
+    @Override
+    public int getPackedFaces(int rowIndex, int colIndex) {
+        return getBox(rowIndex, colIndex).getPackedFaces();
+    }
+
+    // the box keeps its base faces and rotation, so this reads them directly
+    @Override
+    public int getCellState(int rowIndex, int colIndex) {
+        return CellState.ofBox(getBox(rowIndex, colIndex));
+    }
+
+    @Override
+    public char getBoxTypeMarker(int rowIndex, int colIndex) {
+        return getBox(rowIndex, colIndex).getBoxTypeMarker();
+    }
+
+    @Override
+    public char getStatusMarker(int rowIndex, int colIndex) {
+        return getBox(rowIndex, colIndex).getStatusMarker();
+    }
+
+    @Override
+    public boolean isFixed(int rowIndex, int colIndex) {
+        return getBox(rowIndex, colIndex) instanceof FixedBox;
+    }
+
+    @Override
+    public boolean canRoll(int rowIndex, int colIndex) {
+        return getBox(rowIndex, colIndex).canRoll();
+    }
+
+    @Override
+    public boolean allowsDomino(int rowIndex, int colIndex) {
+        return getBox(rowIndex, colIndex).allowsDomino();
+    }
+
+    @Override
+    public boolean isOpened(int rowIndex, int colIndex) {
+        return getBox(rowIndex, colIndex).isOpened();
+    }
+
+    @Override
+    public boolean isEmpty(int rowIndex, int colIndex) {
+        return getBox(rowIndex, colIndex).isEmpty();
+    }
+
+    @Override
+    public boolean hasTool(int rowIndex, int colIndex) {
+        return getBox(rowIndex, colIndex).hasTool();
+    }
+
+    @Override
+    public SpecialTool getTool(int rowIndex, int colIndex) {
+        return getBox(rowIndex, colIndex).getTool();
+    }
+
+    @Override
+    protected void rollCell(int rowIndex, int colIndex, Direction direction) {
+        getBox(rowIndex, colIndex).roll(direction);
+    }
+
+    @Override
+    protected void flipCell(int rowIndex, int colIndex) {
+        getBox(rowIndex, colIndex).flip();
+    }
+
+    @Override
+    protected void restampCell(int rowIndex, int colIndex, Letter newLetter) {
+        getBox(rowIndex, colIndex).restamp(newLetter);
+    }
+
+    @Override
+    protected SpecialTool removeToolCell(int rowIndex, int colIndex) {
+        return getBox(rowIndex, colIndex).removeTool();
+    }
+}
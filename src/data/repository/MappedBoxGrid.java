@@ -0,0 +1,252 @@
+package data.repository;
+
+import data.factory.BoxFactory;
+import data.models.Box;
+import data.models.CubeRotation;
+import enums.Direction;
+import enums.Letter;
+import tools.SpecialTool;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * MappedBoxGrid
+ *
+ * Off-heap backend for boards that do not fit on the heap. Every cell is one
+ * CellState int inside a memory-mapped file, so no Box objects are kept at all
+ * and the operating system pages the board in and out as needed.
+ *
+ * File layout (big endian):
+ *  - header: magic, format version, row count, column count (4 ints)
+ *  - cells:  rowCount * columnCount CellState ints in row-major order
+ *
+ * The file is mapped in chunks of at most 1 GiB, because a single
+ * MappedByteBuffer cannot be larger than 2 GiB. Reopening an existing file only
+ * reads the header and maps it again, nothing is regenerated. create(...) writes
+ * the magic number only after every cell is on disk, so a crash while filling
+ * leaves a file that open(...) refuses.
+ */
+public class MappedBoxGrid extends BoxGrid implements AutoCloseable {
+
+    private static final int MAGIC = 0x42584752; // "BXGR"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+    // 2^28 cells of 4 bytes = 1 GiB per mapped chunk
+    private static final int CHUNK_SHIFT = 28;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+
+    private MappedBoxGrid(FileChannel channel, int rowCount, int columnCount) throws IOException {
+        super(rowCount, columnCount);
+        this.channel = channel;
+
+        long cellCount = (long) rowCount * columnCount;
+        int chunkCount = (int) ((cellCount - 1) >>> CHUNK_SHIFT) + 1;
+        this.chunks = new MappedByteBuffer[chunkCount];
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            long firstCell = (long) chunk << CHUNK_SHIFT;
+            long cellsInChunk = Math.min(1L << CHUNK_SHIFT, cellCount - firstCell);
+            chunks[chunk] = channel.map(FileChannel.MapMode.READ_WRITE,
+                    HEADER_BYTES + firstCell * Integer.BYTES, cellsInChunk * Integer.BYTES);
+        }
+    }
+
+    /**
+     * Creates (or overwrites) the file and fills it with a random rows x columns board.
+     */
+    public static MappedBoxGrid create(Path file, int rowCount, int columnCount) throws IOException {
+        return create(file, rowCount, columnCount, new SplittableRandom());
+    }
+
+    /**
+     * The same, with the board drawn from the given random generator.
+     */
+    public static MappedBoxGrid create(Path file, int rowCount, int columnCount, SplittableRandom random) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            // the magic number is written last, so open(...) rejects a file whose fill never finished
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.putInt(0).putInt(VERSION).putInt(rowCount).putInt(columnCount);
+
+            MappedBoxGrid grid = new MappedBoxGrid(channel, rowCount, columnCount);
+            for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+                for (int colIndex = 0; colIndex < columnCount; colIndex++) {
+                    grid.setBox(rowIndex, colIndex, BoxFactory.createRandomBox(random));
+                }
+            }
+            grid.flush();
+            header.putInt(0, MAGIC);
+            header.force();
+            return grid;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a board file written earlier by create(...).
+     */
+    public static MappedBoxGrid open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a box grid file: " + file);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a box grid file: " + file);
+            }
+            int rowCount = header.getInt();
+            int columnCount = header.getInt();
+            if (channel.size() < HEADER_BYTES + (long) rowCount * columnCount * Integer.BYTES) {
+                throw new IOException("Box grid file is truncated: " + file);
+            }
+            return new MappedBoxGrid(channel, rowCount, columnCount);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes all changes back to the file.
+     */
+    public void flush() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    // ---------------------------------------------------------
+    // Cell storage
+    // ---------------------------------------------------------
+
+    private int read(int rowIndex, int colIndex) {
+        validateBounds(rowIndex, colIndex);
+        long cell = (long) rowIndex * columnCount + colIndex;
+        return chunks[(int) (cell >>> CHUNK_SHIFT)].getInt((int) (cell & CHUNK_MASK) * Integer.BYTES);
+    }
+
+    private void write(int rowIndex, int colIndex, int state) {
+        long cell = (long) rowIndex * columnCount + colIndex;
+        chunks[(int) (cell >>> CHUNK_SHIFT)].putInt((int) (cell & CHUNK_MASK) * Integer.BYTES, state);
+    }
+
+    // ---------------------------------------------------------
+    // Cell access
+    // ---------------------------------------------------------
+
+    @Override
+    public int getCellState(int rowIndex, int colIndex) {
+        return read(rowIndex, colIndex);
+    }
+
+    @Override
+    public Letter getTopFace(int rowIndex, int colIndex) {
+        return CellState.topFace(read(rowIndex, colIndex));
+    }
+
+    @Override
+    public int getPackedFaces(int rowIndex, int colIndex) {
+        return CubeRotation.stateFaces(CellState.orientation(read(rowIndex, colIndex)));
+    }
+
+    @Override
+    public char getBoxTypeMarker(int rowIndex, int colIndex) {
+        return CellState.typeMarker(read(rowIndex, colIndex));
+    }
+
+    @Override
+    public char getStatusMarker(int rowIndex, int colIndex) {
+        return CellState.statusMarker(read(rowIndex, colIndex));
+    }
+
+    @Override
+    public boolean isFixed(int rowIndex, int colIndex) {
+        return CellState.type(read(rowIndex, colIndex)) == CellState.TYPE_FIXED;
+    }
+
+    @Override
+    public boolean canRoll(int rowIndex, int colIndex) {
+        return !isFixed(rowIndex, colIndex);
+    }
+
+    @Override
+    public boolean allowsDomino(int rowIndex, int colIndex) {
+        return !isFixed(rowIndex, colIndex);
+    }
+
+    @Override
+    public boolean isOpened(int rowIndex, int colIndex) {
+        return CellState.isOpened(read(rowIndex, colIndex));
+    }
+
+    @Override
+    public boolean isEmpty(int rowIndex, int colIndex) {
+        return CellState.isEmpty(read(rowIndex, colIndex));
+    }
+
+    @Override
+    public boolean hasTool(int rowIndex, int colIndex) {
+        return CellState.toolKind(read(rowIndex, colIndex)) != CellState.TOOL_NONE;
+    }
+
+    @Override
+    public SpecialTool getTool(int rowIndex, int colIndex) {
+        return CellState.toolOf(CellState.toolKind(read(rowIndex, colIndex)));
+    }
+
+    @Override
+    protected void rollCell(int rowIndex, int colIndex, Direction direction) {
+        write(rowIndex, colIndex, CellState.roll(read(rowIndex, colIndex), direction));
+    }
+
+    @Override
+    protected void flipCell(int rowIndex, int colIndex) {
+        write(rowIndex, colIndex, CellState.flip(read(rowIndex, colIndex)));
+    }
+
+    @Override
+    protected void restampCell(int rowIndex, int colIndex, Letter newLetter) {
+        write(rowIndex, colIndex, CellState.restamp(read(rowIndex, colIndex), newLetter));
+    }
+
+    @Override
+    protected SpecialTool removeToolCell(int rowIndex, int colIndex) {
+        int state = read(rowIndex, colIndex);
+        byte toolKind = CellState.toolKind(state);
+        if (toolKind == CellState.TOOL_NONE) {
+            return null;
+        }
+        write(rowIndex, colIndex, CellState.removeTool(state));
+        return CellState.toolOf(toolKind);
+    }
+
+    @Override
+    protected void setBoxCell(int rowIndex, int colIndex, Box box) {
+        validateBounds(rowIndex, colIndex);
+        write(rowIndex, colIndex, CellState.ofBox(box));
+    }
+
+    @Override
+    protected void setCellStateCell(int rowIndex, int colIndex, int state) {
+        validateBounds(rowIndex, colIndex);
+        write(rowIndex, colIndex, state);
+    }
+}
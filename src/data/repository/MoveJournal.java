@@ -0,0 +1,149 @@
+package data.repository;
+
+import java.util.Arrays;
+
+/**
+ * MoveJournal
+ *
+ * Records every cell change of one grid as a (cell, state before, state after)
+ * triple of ints, grouped into moves. undo() writes the before states of the last
+ * move back in reverse order and redo() writes the after states again, so both
+ * cost only as much as the move changed and no grid is ever copied.
+ *
+ * A move starts with beginMove() (GameEngine starts one per roll and one per
+ * open, see GameEngine.undo()). Changes made without it, or right after an undo
+ * or redo, start a new move on their own. Recording a change after an undo drops
+ * the moves that could have been redone.
+ */
+public final class MoveJournal {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final BoxGrid grid;
+    private int[] cells = new int[INITIAL_CAPACITY];
+    private int[] before = new int[INITIAL_CAPACITY];
+    private int[] after = new int[INITIAL_CAPACITY];
+    // recorded changes, including those of undone moves
+    private int entryCount;
+
+    // first entry of each move
+    private int[] moveStarts = new int[INITIAL_CAPACITY];
+    // recorded moves, including undone ones
+    private int moveCount;
+    // moves currently applied to the grid
+    private int doneMoves;
+    private boolean moveOpen;
+    private boolean replaying;
+
+    MoveJournal(BoxGrid grid) {
+        this.grid = grid;
+    }
+
+    /**
+     * Starts a new move; the changes that follow are undone together.
+     */
+    public void beginMove() {
+        discardRedo();
+        if (moveCount == moveStarts.length) {
+            moveStarts = Arrays.copyOf(moveStarts, moveCount * 2);
+        }
+        moveStarts[moveCount++] = entryCount;
+        doneMoves = moveCount;
+        moveOpen = true;
+    }
+
+    void record(int rowIndex, int colIndex, int stateBefore, int stateAfter) {
+        if (replaying || stateBefore == stateAfter) {
+            return;
+        }
+        if (!moveOpen || doneMoves < moveCount) {
+            beginMove();
+        }
+        if (entryCount == cells.length) {
+            int capacity = entryCount * 2;
+            cells = Arrays.copyOf(cells, capacity);
+            before = Arrays.copyOf(before, capacity);
+            after = Arrays.copyOf(after, capacity);
+        }
+        cells[entryCount] = Cell.of(rowIndex, colIndex);
+        before[entryCount] = stateBefore;
+        after[entryCount] = stateAfter;
+        entryCount++;
+    }
+
+    public boolean canUndo() {
+        return doneMoves > 0;
+    }
+
+    public boolean canRedo() {
+        return doneMoves < moveCount;
+    }
+
+    /**
+     * Takes back the last applied move. Returns false if there is none.
+     */
+    public boolean undo() {
+        if (!canUndo()) {
+            return false;
+        }
+        int move = --doneMoves;
+        replaying = true;
+        try {
+            for (int entry = moveEnd(move) - 1; entry >= moveStarts[move]; entry--) {
+                grid.setCellState(Cell.row(cells[entry]), Cell.col(cells[entry]), before[entry]);
+            }
+        } finally {
+            replaying = false;
+        }
+        moveOpen = false;
+        return true;
+    }
+
+    /**
+     * Applies the last undone move again. Returns false if there is none.
+     */
+    public boolean redo() {
+        if (!canRedo()) {
+            return false;
+        }
+        int move = doneMoves++;
+        replaying = true;
+        try {
+            for (int entry = moveStarts[move]; entry < moveEnd(move); entry++) {
+                grid.setCellState(Cell.row(cells[entry]), Cell.col(cells[entry]), after[entry]);
+            }
+        } finally {
+            replaying = false;
+        }
+        moveOpen = false;
+        return true;
+    }
+
+    /**
+     * Number of moves that can be undone.
+     */
+    public int getMoveCount() {
+        return doneMoves;
+    }
+
+    /**
+     * Forgets every recorded move; the grid keeps its current state.
+     */
+    public void clear() {
+        entryCount = 0;
+        moveCount = 0;
+        doneMoves = 0;
+        moveOpen = false;
+    }
+
+    private int moveEnd(int move) {
+        return move + 1 < moveCount ? moveStarts[move + 1] : entryCount;
+    }
+
+    private void discardRedo() {
+        if (doneMoves < moveCount) {
+            entryCount = moveStarts[doneMoves];
+            moveCount = doneMoves;
+        }
+    }
+}
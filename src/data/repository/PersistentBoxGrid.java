@@ -0,0 +1,276 @@
+package data.repository;
+
+import data.factory.BoxFactory;
+import data.models.Box;
+import data.models.CubeRotation;
+import enums.Direction;
+import enums.Letter;
+import tools.SpecialTool;
+
+import java.util.SplittableRandom;
+
+/**
+ * PersistentBoxGrid
+ *
+ * Copy-on-write backend for branching searches. Every cell is one CellState int,
+ * stored in chunks of up to 64 cells of one row. The chunks are the leaves of a
+ * tree with up to 32 children per node, so snapshot() can hand out the whole
+ * tree as an immutable GridSnapshot in O(1). Afterwards the grid and every grid
+ * branched from the snapshot copy only the path from the root to a chunk the
+ * first time they write to it, and share everything else.
+ *
+ * Each node remembers the owner token of the grid that copied it. A grid may
+ * write into a node in place only while the node carries its current token;
+ * taking a snapshot gives the grid a new token, so all nodes become shared.
+ */
+public class PersistentBoxGrid extends BoxGrid {
+
+    // 64 cells per chunk, shared with GridSnapshot
+    static final int CHUNK_SHIFT = 6;
+    static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+    // 32 children per inner node
+    private static final int FANOUT_SHIFT = 5;
+    private static final int FANOUT_MASK = (1 << FANOUT_SHIFT) - 1;
+
+    private final int chunksPerRow;
+    // inner levels above the chunks, 0 when the whole grid is one chunk
+    private final int levels;
+    private Node root;
+    private Object owner = new Object();
+
+    // creates a random 8x8 grid with the same distributions as the other backends
+    public PersistentBoxGrid() {
+        this(DEFAULT_SIZE, DEFAULT_SIZE);
+    }
+
+    // creates a random rows x columns grid
+    public PersistentBoxGrid(int rowCount, int columnCount) {
+        this(rowCount, columnCount, new SplittableRandom());
+    }
+
+    // creates a rows x columns grid, the same one for the same random generator state
+    public PersistentBoxGrid(int rowCount, int columnCount, SplittableRandom random) {
+        this(rowCount, columnCount, null, random);
+    }
+
+    // copies the state of any other grid
+    public PersistentBoxGrid(BoxGrid source) {
+        this(source.getRowCount(), source.getColumnCount(), source, null);
+    }
+
+    private PersistentBoxGrid(int rowCount, int columnCount, BoxGrid source, SplittableRandom random) {
+        super(rowCount, columnCount);
+        this.chunksPerRow = ((columnCount - 1) >>> CHUNK_SHIFT) + 1;
+        if ((long) rowCount * chunksPerRow > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Grid is too large: " + rowCount + "x" + columnCount);
+        }
+        int chunkCount = rowCount * chunksPerRow;
+        Node[] level = new Node[chunkCount];
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            int firstCol = (chunk % chunksPerRow) << CHUNK_SHIFT;
+            level[chunk] = new Node(owner, null, new int[Math.min(1 << CHUNK_SHIFT, columnCount - firstCol)]);
+        }
+        // group 32 nodes under one parent until a single root is left
+        int levelCount = 0;
+        while (level.length > 1) {
+            Node[] parents = new Node[((level.length - 1) >>> FANOUT_SHIFT) + 1];
+            for (int p = 0; p < parents.length; p++) {
+                int first = p << FANOUT_SHIFT;
+                Node[] children = new Node[Math.min(1 << FANOUT_SHIFT, level.length - first)];
+                System.arraycopy(level, first, children, 0, children.length);
+                parents[p] = new Node(owner, children, null);
+            }
+            level = parents;
+            levelCount++;
+        }
+        this.levels = levelCount;
+        this.root = level[0];
+
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            for (int colIndex = 0; colIndex < columnCount; colIndex++) {
+                if (source == null) {
+                    setBox(rowIndex, colIndex, BoxFactory.createRandomBox(random));
+                } else {
+                    write(rowIndex, colIndex, source.getCellState(rowIndex, colIndex));
+                }
+            }
+        }
+    }
+
+    // branches from a snapshot, sharing its whole tree
+    PersistentBoxGrid(GridSnapshot snapshot) {
+        super(snapshot.getRowCount(), snapshot.getColumnCount());
+        this.chunksPerRow = ((columnCount - 1) >>> CHUNK_SHIFT) + 1;
+        this.levels = snapshot.levels();
+        this.root = snapshot.root();
+    }
+
+    /**
+     * Freezes the current contents in O(1). Later changes to this grid do not
+     * show up in the snapshot.
+     */
+    public GridSnapshot snapshot() {
+        owner = new Object();
+        return new GridSnapshot(rowCount, columnCount, chunksPerRow, levels, root);
+    }
+
+    // ---------------------------------------------------------
+    // Cell storage
+    // ---------------------------------------------------------
+
+    /**
+     * A node of the chunk tree: inner nodes hold children, leaves hold the cells
+     * of one chunk. Only the grid whose token is in owner may change the arrays.
+     */
+    static final class Node {
+
+        final Object owner;
+        final Node[] children;
+        final int[] cells;
+
+        Node(Object owner, Node[] children, int[] cells) {
+            this.owner = owner;
+            this.children = children;
+            this.cells = cells;
+        }
+
+        Node copy(Object newOwner) {
+            return new Node(newOwner, children == null ? null : children.clone(), cells == null ? null : cells.clone());
+        }
+    }
+
+    // shared with GridSnapshot, which reads the same tree
+    static int read(Node root, int levels, int chunk, int colIndex) {
+        Node node = root;
+        for (int level = levels - 1; level >= 0; level--) {
+            node = node.children[(chunk >>> (level * FANOUT_SHIFT)) & FANOUT_MASK];
+        }
+        return node.cells[colIndex & CHUNK_MASK];
+    }
+
+    private int read(int rowIndex, int colIndex) {
+        validateBounds(rowIndex, colIndex);
+        return read(root, levels, rowIndex * chunksPerRow + (colIndex >>> CHUNK_SHIFT), colIndex);
+    }
+
+    // copies the nodes on the path to the chunk that this grid does not own yet
+    private void write(int rowIndex, int colIndex, int state) {
+        int chunk = rowIndex * chunksPerRow + (colIndex >>> CHUNK_SHIFT);
+        if (root.owner != owner) {
+            root = root.copy(owner);
+        }
+        Node node = root;
+        for (int level = levels - 1; level >= 0; level--) {
+            int slot = (chunk >>> (level * FANOUT_SHIFT)) & FANOUT_MASK;
+            Node child = node.children[slot];
+            if (child.owner != owner) {
+                child = child.copy(owner);
+                node.children[slot] = child;
+            }
+            node = child;
+        }
+        node.cells[colIndex & CHUNK_MASK] = state;
+    }
+
+    // ---------------------------------------------------------
+    // Cell access
+    // ---------------------------------------------------------
+
+    @Override
+    public int getCellState(int rowIndex, int colIndex) {
+        return read(rowIndex, colIndex);
+    }
+
+    @Override
+    public Letter getTopFace(int rowIndex, int colIndex) {
+        return CellState.topFace(read(rowIndex, colIndex));
+    }
+
+    @Override
+    public int getPackedFaces(int rowIndex, int colIndex) {
+        return CubeRotation.stateFaces(CellState.orientation(read(rowIndex, colIndex)));
+    }
+
+    @Override
+    public char getBoxTypeMarker(int rowIndex, int colIndex) {
+        return CellState.typeMarker(read(rowIndex, colIndex));
+    }
+
+    @Override
+    public char getStatusMarker(int rowIndex, int colIndex) {
+        return CellState.statusMarker(read(rowIndex, colIndex));
+    }
+
+    @Override
+    public boolean isFixed(int rowIndex, int colIndex) {
+        return CellState.type(read(rowIndex, colIndex)) == CellState.TYPE_FIXED;
+    }
+
+    @Override
+    public boolean canRoll(int rowIndex, int colIndex) {
+        return !isFixed(rowIndex, colIndex);
+    }
+
+    @Override
+    public boolean allowsDomino(int rowIndex, int colIndex) {
+        return !isFixed(rowIndex, colIndex);
+    }
+
+    @Override
+    public boolean isOpened(int rowIndex, int colIndex) {
+        return CellState.isOpened(read(rowIndex, colIndex));
+    }
+
+    @Override
+    public boolean isEmpty(int rowIndex, int colIndex) {
+        return CellState.isEmpty(read(rowIndex, colIndex));
+    }
+
+    @Override
+    public boolean hasTool(int rowIndex, int colIndex) {
+        return CellState.toolKind(read(rowIndex, colIndex)) != CellState.TOOL_NONE;
+    }
+
+    @Override
+    public SpecialTool getTool(int rowIndex, int colIndex) {
+        return CellState.toolOf(CellState.toolKind(read(rowIndex, colIndex)));
+    }
+
+    @Override
+    protected void rollCell(int rowIndex, int colIndex, Direction direction) {
+        write(rowIndex, colIndex, CellState.roll(read(rowIndex, colIndex), direction));
+    }
+
+    @Override
+    protected void flipCell(int rowIndex, int colIndex) {
+        write(rowIndex, colIndex, CellState.flip(read(rowIndex, colIndex)));
+    }
+
+    @Override
+    protected void restampCell(int rowIndex, int colIndex, Letter newLetter) {
+        write(rowIndex, colIndex, CellState.restamp(read(rowIndex, colIndex), newLetter));
+    }
+
+    @Override
+    protected SpecialTool removeToolCell(int rowIndex, int colIndex) {
+        int state = read(rowIndex, colIndex);
+        byte toolKind = CellState.toolKind(state);
+        if (toolKind == CellState.TOOL_NONE) {
+            return null;
+        }
+        write(rowIndex, colIndex, CellState.removeTool(state));
+        return CellState.toolOf(toolKind);
+    }
+
+    @Override
+    protected void setBoxCell(int rowIndex, int colIndex, Box box) {
+        validateBounds(rowIndex, colIndex);
+        write(rowIndex, colIndex, CellState.ofBox(box));
+    }
+
+    @Override
+    protected void setCellStateCell(int rowIndex, int colIndex, int state) {
+        validateBounds(rowIndex, colIndex);
+        write(rowIndex, colIndex, state);
+    }
+}
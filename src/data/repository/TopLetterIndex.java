@@ -0,0 +1,94 @@
+package data.repository;
+
+import enums.Letter;
+
+/**
+ * TopLetterIndex
+ *
+ * One 2D Fenwick tree (binary indexed tree) per Letter over the top faces of a grid.
+ * A point update and a rectangle count both cost O(log rows * log columns).
+ *
+ * Memory is one int per cell per letter, so BoxGrid only builds it on the first
+ * region query.
+ */
+final class TopLetterIndex {
+
+    private final int rowCount;
+    private final int columnCount;
+    // trees[letter][row * (columnCount + 1) + col], 1-based rows and columns
+    private final int[][] trees;
+
+    TopLetterIndex(BoxGrid grid) {
+        this.rowCount = grid.getRowCount();
+        this.columnCount = grid.getColumnCount();
+        int stride = columnCount + 1;
+        this.trees = new int[Letter.values().length][(rowCount + 1) * stride];
+
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            for (int colIndex = 0; colIndex < columnCount; colIndex++) {
+                trees[grid.getTopFace(rowIndex, colIndex).ordinal()][(rowIndex + 1) * stride + colIndex + 1] = 1;
+            }
+        }
+
+        // Linear-time build: push every node into its parent, first along rows, then along columns
+        for (int[] tree : trees) {
+            for (int row = 1; row <= rowCount; row++) {
+                for (int col = 1; col <= columnCount; col++) {
+                    int parent = col + (col & -col);
+                    if (parent <= columnCount) {
+                        tree[row * stride + parent] += tree[row * stride + col];
+                    }
+                }
+            }
+            for (int row = 1; row <= rowCount; row++) {
+                int parent = row + (row & -row);
+                if (parent <= rowCount) {
+                    for (int col = 1; col <= columnCount; col++) {
+                        tree[parent * stride + col] += tree[row * stride + col];
+                    }
+                }
+            }
+        }
+    }
+
+    void update(int rowIndex, int colIndex, Letter before, Letter after) {
+        if (before == after) {
+            return;
+        }
+        add(trees[before.ordinal()], rowIndex, colIndex, -1);
+        add(trees[after.ordinal()], rowIndex, colIndex, 1);
+    }
+
+    /**
+     * Counts the letter inside the rectangle of rows firstRow..lastRow and columns
+     * firstCol..lastCol (all inclusive, 0-based).
+     */
+    int count(Letter letter, int firstRow, int firstCol, int lastRow, int lastCol) {
+        int[] tree = trees[letter.ordinal()];
+        return prefix(tree, lastRow, lastCol)
+                - prefix(tree, firstRow - 1, lastCol)
+                - prefix(tree, lastRow, firstCol - 1)
+                + prefix(tree, firstRow - 1, firstCol - 1);
+    }
+
+    private void add(int[] tree, int rowIndex, int colIndex, int delta) {
+        int stride = columnCount + 1;
+        for (int row = rowIndex + 1; row <= rowCount; row += row & -row) {
+            for (int col = colIndex + 1; col <= columnCount; col += col & -col) {
+                tree[row * stride + col] += delta;
+            }
+        }
+    }
+
+    // count in rows 0..rowIndex and columns 0..colIndex
+    private int prefix(int[] tree, int rowIndex, int colIndex) {
+        int stride = columnCount + 1;
+        int sum = 0;
+        for (int row = rowIndex + 1; row > 0; row -= row & -row) {
+            for (int col = colIndex + 1; col > 0; col -= col & -col) {
+                sum += tree[row * stride + col];
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,155 @@
+package data.repository;
+
+import data.models.PackedFaces;
+
+/**
+ * ZobristHash
+ *
+ * Incremental 64-bit hash of a whole grid: the XOR of one key per (cell, state),
+ * where the state is the normalized CellState (faces, type, tool, opened, empty).
+ * Changing a cell costs two key lookups per tracked symmetry, no rescan.
+ *
+ * Keys are computed by a 64-bit mixer instead of being looked up in a table, so
+ * any board size works. Next to the plain hash it keeps the hash of the board seen
+ * through each symmetry (the 8 rotations and reflections of a square board, the 4
+ * that keep the shape of a rectangular one). Turning the board also turns every
+ * box, so the side faces are permuted along with the cells, and where rows and
+ * columns trade places a mass row stamp becomes a mass column stamp and back.
+ * The smallest of these hashes is the same for all symmetric positions.
+ */
+final class ZobristHash {
+
+    private static final int FACES_MASK = (1 << 18) - 1;
+
+    // (r, c) -> (rr * r + rc * c, cr * r + cc * c), shifted back into the grid
+    private static final int[][] SYMMETRIES = {
+            {1, 0, 0, 1},    // identity
+            {-1, 0, 0, -1},  // rotate 180
+            {1, 0, 0, -1},   // mirror left-right
+            {-1, 0, 0, 1},   // mirror top-bottom
+            {0, 1, -1, 0},   // rotate 90 clockwise
+            {0, -1, 1, 0},   // rotate 90 counterclockwise
+            {0, 1, 1, 0},    // transpose
+            {0, -1, -1, 0},  // anti-transpose
+    };
+
+    // grid direction (row step, column step) of each side face
+    private static final int[][] SIDE_STEPS = new int[PackedFaces.FACE_COUNT][];
+
+    static {
+        SIDE_STEPS[PackedFaces.BACK] = new int[]{-1, 0};
+        SIDE_STEPS[PackedFaces.FRONT] = new int[]{1, 0};
+        SIDE_STEPS[PackedFaces.LEFT] = new int[]{0, -1};
+        SIDE_STEPS[PackedFaces.RIGHT] = new int[]{0, 1};
+    }
+
+    private final int rowCount;
+    private final int columnCount;
+    private final int symmetryCount;
+    // faceSources[s] permutes the faces of a box moved by symmetry s
+    private final int[][] faceSources;
+    private final long[] hashes;
+
+    ZobristHash(BoxGrid grid) {
+        this.rowCount = grid.getRowCount();
+        this.columnCount = grid.getColumnCount();
+        // only the first four symmetries keep a rectangular board's shape
+        this.symmetryCount = rowCount == columnCount ? SYMMETRIES.length : 4;
+        this.faceSources = new int[symmetryCount][];
+        for (int s = 0; s < symmetryCount; s++) {
+            faceSources[s] = faceSource(SYMMETRIES[s]);
+        }
+
+        this.hashes = new long[symmetryCount];
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            for (int colIndex = 0; colIndex < columnCount; colIndex++) {
+                int state = CellState.normalized(grid.getCellState(rowIndex, colIndex));
+                for (int s = 0; s < symmetryCount; s++) {
+                    hashes[s] ^= key(s, rowIndex, colIndex, state);
+                }
+            }
+        }
+    }
+
+    // the side that each side face moves to decides where its letter ends up
+    private static int[] faceSource(int[] symmetry) {
+        int[] source = new int[PackedFaces.FACE_COUNT];
+        source[PackedFaces.TOP] = PackedFaces.TOP;
+        source[PackedFaces.BOTTOM] = PackedFaces.BOTTOM;
+        for (int face = 0; face < PackedFaces.FACE_COUNT; face++) {
+            if (SIDE_STEPS[face] == null) {
+                continue;
+            }
+            int rowStep = symmetry[0] * SIDE_STEPS[face][0] + symmetry[1] * SIDE_STEPS[face][1];
+            int colStep = symmetry[2] * SIDE_STEPS[face][0] + symmetry[3] * SIDE_STEPS[face][1];
+            for (int target = 0; target < PackedFaces.FACE_COUNT; target++) {
+                if (SIDE_STEPS[target] != null && SIDE_STEPS[target][0] == rowStep && SIDE_STEPS[target][1] == colStep) {
+                    source[target] = face;
+                }
+            }
+        }
+        return source;
+    }
+
+    void copyFrom(ZobristHash source) {
+        System.arraycopy(source.hashes, 0, hashes, 0, symmetryCount);
+    }
+
+    void update(int rowIndex, int colIndex, int stateBefore, int stateAfter) {
+        int before = CellState.normalized(stateBefore);
+        int after = CellState.normalized(stateAfter);
+        if (before == after) {
+            return;
+        }
+        for (int s = 0; s < symmetryCount; s++) {
+            hashes[s] ^= key(s, rowIndex, colIndex, before) ^ key(s, rowIndex, colIndex, after);
+        }
+    }
+
+    long hash() {
+        return hashes[0];
+    }
+
+    long canonicalHash() {
+        long smallest = hashes[0];
+        for (int s = 1; s < symmetryCount; s++) {
+            smallest = Math.min(smallest, hashes[s]);
+        }
+        return smallest;
+    }
+
+    // key of the cell state after moving it with symmetry s
+    private long key(int s, int rowIndex, int colIndex, int normalizedState) {
+        int[] symmetry = SYMMETRIES[s];
+        int row = symmetry[0] * rowIndex + symmetry[1] * colIndex
+                + (symmetry[0] < 0 ? rowCount - 1 : 0) + (symmetry[1] < 0 ? columnCount - 1 : 0);
+        int col = symmetry[2] * rowIndex + symmetry[3] * colIndex
+                + (symmetry[2] < 0 ? rowCount - 1 : 0) + (symmetry[3] < 0 ? columnCount - 1 : 0);
+        int faces = PackedFaces.permute(normalizedState & FACES_MASK, faceSources[s]);
+        int state = (normalizedState & ~FACES_MASK) | faces;
+        if (symmetry[0] == 0) {
+            // rows and columns trade places, so does what the mass stamps cover
+            state = CellState.withToolKind(state, swapAxes(CellState.toolKind(state)));
+        }
+        return mix(((long) (row * columnCount + col) << 32) | (state & 0xFFFFFFFFL));
+    }
+
+    private static byte swapAxes(byte toolKind) {
+        switch (toolKind) {
+            case CellState.TOOL_MASS_ROW:
+                return CellState.TOOL_MASS_COLUMN;
+            case CellState.TOOL_MASS_COLUMN:
+                return CellState.TOOL_MASS_ROW;
+            default:
+                return toolKind;
+        }
+    }
+
+    // SplitMix64 step
+    private static long mix(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,21 @@
+package enums;
+
+/**
+ * How a stage of a turn ended. Wasted turns are ordinary outcomes, not exceptions.
+ */
+public enum TurnOutcome {
+    // the edge box and the boxes behind it were rolled
+    ROLLED,
+    // the chosen edge box is a FixedBox, the turn is wasted
+    WASTED_FIXED,
+    // the opened box contained no tool, the turn is wasted
+    WASTED_EMPTY,
+    // the tool found in the opened box was used
+    TOOL_APPLIED,
+    // the tool could not be used on the chosen box (e.g. fixing a FixedBox), the turn is wasted
+    TOOL_REJECTED;
+
+    public boolean isWasted() {
+        return this == WASTED_FIXED || this == WASTED_EMPTY || this == TOOL_REJECTED;
+    }
+}
@@ -1,56 +1,82 @@
 package logic;
 
-import data.models.Box;
+import data.models.PackedFaces;
 import data.repository.BoxGrid;
-import exceptions.EmptyBoxException;
-import exceptions.UnmovableFixedBoxException;
+import data.repository.Cell;
+import data.repository.ListBoxGrid;
 import tools.SpecialTool;
 import enums.Letter;
 import enums.Direction;
-import java.util.ArrayList;
+import enums.TurnOutcome;
 import java.util.List;
 import java.util.Scanner;
+import java.util.SplittableRandom;
 
 /**
  * BoxPuzzle
  *
- * This class manages the core game logic, including the game loop (5 turns),
- * the domino effect mechanism, and user interactions via the inner Menu class.
+ * The console version of the game: it reads the player's choices via the inner
+ * Menu class, passes them to the GameEngine (which holds the game rules, the
+ * 5 turns and the domino effect mechanism) and prints the results. Played turns
+ * can be taken back and played again through the grid's journal.
  *
- * It utilizes the BoxGrid to represent the 8x8 board.
+ * It utilizes the BoxGrid to represent the board (8x8 by default).
  */
 public class BoxPuzzle {
 
-    // The grid containing 8x8 boxes
+    // The grid containing the boxes (8x8 by default)
     private final BoxGrid boxGrid;
-    
-    // Tracks the coordinates of boxes moved during Stage 1.
-    // Required to enforce the rule that only moved boxes can be opened in Stage 2.
-    private final List<String> movedBoxesCoords; 
+
+    // The game rules, driven by this console adapter
+    private final GameEngine engine;
     
     // Scanner for user input
     private final Scanner scanner;
     
     // The target letter (A-H) that the player needs to maximize on top faces.
-    private char targetLetter; 
+    private final char targetLetter; 
 
     /**
-     * Constructor initializes the grid, the tracker list, and generates a random target letter.
+     * Constructor initializes the grid and generates a random target letter.
      */
     public BoxPuzzle() {
-        this.boxGrid = new BoxGrid();
-        // Using ArrayList as it provides dynamic resizing and easy access for tracking coordinates.
-        this.movedBoxesCoords = new ArrayList<>();
+        this(new SplittableRandom());
+    }
+
+    /**
+     * Same board and target letter for the same seed, e.g. to replay a game.
+     */
+    public BoxPuzzle(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    private BoxPuzzle(SplittableRandom random) {
+        this(new ListBoxGrid(BoxGrid.DEFAULT_SIZE, BoxGrid.DEFAULT_SIZE, random), random);
+    }
+
+    /**
+     * Plays on the given grid, which can be any BoxGrid backend.
+     */
+    public BoxPuzzle(BoxGrid boxGrid) {
+        this(boxGrid, new SplittableRandom());
+    }
+
+    /**
+     * Plays on the given grid with a target letter drawn from random.
+     */
+    public BoxPuzzle(BoxGrid boxGrid, SplittableRandom random) {
+        this.boxGrid = boxGrid;
+        this.targetLetter = generateTargetLetter(random);
+        this.engine = new GameEngine(boxGrid, Letter.valueOf(String.valueOf(targetLetter)));
         this.scanner = new Scanner(System.in);
-        generateTargetLetter();
     }
 
     /**
      * Selects a random target letter from 'A' to 'H'.
      */
-    private void generateTargetLetter() {
-        int randomPick = (int) (Math.random() * 8);
-        this.targetLetter = (char) ('A' + randomPick);
+    private static char generateTargetLetter(SplittableRandom random) {
+        int randomPick = random.nextInt(8);
+        return (char) ('A' + randomPick);
     }
 
     /**
@@ -60,24 +86,39 @@ public class BoxPuzzle {
      * 2. Opening (Using Special Tools)
      */
     public void play() {
-        System.out.println("Welcome to Box Top Side Matching Puzzle App. An 8x8 box grid is being generated.");
+        System.out.println("Welcome to Box Top Side Matching Puzzle App. An " + boxGrid.getRowCount() + "x"
+                + boxGrid.getColumnCount() + " box grid is being generated.");
         System.out.println("Your goal is to maximize the letter \"" + targetLetter + "\" on the top sides of the boxes.");
         System.out.println("The initial state of the box grid:");
-        System.out.println(boxGrid.toString());
+        boxGrid.getRenderer().println(System.out);
+        boxGrid.startJournal();
 
         // Game lasts for 5 turns
-        for (int turn = 1; turn <= 5; turn++) {
+        while (!engine.isOver()) {
+            int turn = engine.getCompletedTurns() + 1;
             System.out.println("\n===== > TURN " + turn + ":");
             
-            // Clear the list of moved boxes at the start of each turn
-            movedBoxesCoords.clear(); 
-            
             Menu menu = new Menu();
 
+            // Turns taken back can be played again until a new turn is played
+            if (engine.canUndo() || engine.canRedo()) {
+                int choice = menu.askToUndoOrRedo();
+                if (choice != Menu.PLAY) {
+                    if (choice == Menu.UNDO) {
+                        undoTurn();
+                    } else {
+                        redoTurn();
+                    }
+                    System.out.println("The state of the box grid:");
+                    boxGrid.getRenderer().println(System.out);
+                    continue;
+                }
+            }
+
             // Allows user to view box surfaces before making a move
             if (menu.askToViewSurfaces()) {
-                String loc = menu.getCoordinateInput("Please enter the location of the box you want to view: ");
-                printCubeDiagram(loc);
+                int cell = menu.getCoordinateInput("Please enter the location of the box you want to view: ");
+                printCubeDiagram(cell);
             }
             else {
                 System.out.println("Continuing to the first stage...");
@@ -85,31 +126,19 @@ public class BoxPuzzle {
 
             // STAGE 1: ROLLING MECHANISM
             System.out.println("---> TURN " + turn + " - FIRST STAGE:");
-            try {
-                runFirstStage(menu);
-                // Display the grid after the roll to show changes
-                System.out.println("The new state of the box grid:");
-                System.out.println(boxGrid.toString());
-            } catch (UnmovableFixedBoxException e) {
-                // If a FixedBox is selected, the turn is wasted 
-                System.out.println("TURN WASTED: " + e.getMessage());
+            if (runFirstStage(menu).isWasted()) {
+                // If a FixedBox is selected, the turn is wasted
                 continue;
-                // Loop continues to Stage 2, but since movedBoxesCoords is empty, Stage 2 will effectively be skipped.
-            } catch (Exception e) {
-                System.out.println("An unexpected error occurred during Stage 1: " + e.getMessage());
             }
+            // Display the grid after the roll to show changes
+            System.out.println("The new state of the box grid:");
+            boxGrid.getRenderer().println(System.out);
 
             // STAGE 2: OPENING AND TOOLS
             System.out.println("---> TURN " + turn + " - SECOND STAGE:");
-            try {
-                runSecondStage(menu);
+            if (!runSecondStage(menu).isWasted()) {
                 System.out.println("The new state of the box grid:");
-                System.out.println(boxGrid.toString());
-            } catch (EmptyBoxException e) {
-                // If an empty box is opened, the turn is wasted 
-                System.out.println("TURN WASTED: " + e.getMessage());
-            } catch (Exception e) {
-                 System.out.println("Turn skipped: " + e.getMessage());
+                boxGrid.getRenderer().println(System.out);
             }
         }
 
@@ -119,170 +148,96 @@ public class BoxPuzzle {
 
     /**
      * Executes the first stage of a turn: Rolling.
-     * Handles edge selection, direction determination, and the domino effect.
-     * menu The menu instance to handle user input.
-     * UnmovableFixedBoxException if the user selects a FixedBox on the edge.
+     * Reads the edge box and, for corners, the direction, then lets the engine roll.
+     * Returns WASTED_FIXED if the user selects a FixedBox on the edge.
      */
-    private void runFirstStage(Menu menu) throws UnmovableFixedBoxException {
-        // 1. Get Edge Box Location
-        String location = menu.getCoordinateInput("Please enter the location of the edge box you want to roll: ");
-        int[] coords = boxGrid.parseLocation(location);
-        int row = coords[0];
-        int col = coords[1];
-
-        // 2. Validate that the box is actually on the edge 
-        if (!boxGrid.isEdge(row, col)) {
+    private TurnOutcome runFirstStage(Menu menu) {
+        int cell;
+        while (true) {
+            cell = menu.getCoordinateInput("Please enter the location of the edge box you want to roll: ");
+            if (boxGrid.isEdge(Cell.row(cell), Cell.col(cell))) {
+                break;
+            }
             System.out.println("INCORRECT INPUT: The chosen box is not on any of the edges.");
-            // Recursively ask for input again until valid
-            runFirstStage(menu); 
-            return;
-        }
-
-        // 3. Determine Rolling Direction
-        String direction;
-        // If it's a corner, the user must choose the direction 
-        if (boxGrid.isCorner(row, col)) {
-            direction = menu.getDirectionInput(row, col);
-        } else {
-            // If it's not a corner, direction is automatically inward 
-            direction = calculateAutoDirection(row, col);
-        }
-
-        // 4. Check if the selected box allows movement
-        Box selectedBox = boxGrid.getBox(row, col);
-        // FixedBoxes cannot be moved. This throws an exception and wastes the turn. 
-        if (!selectedBox.canRoll()) { 
-             throw new UnmovableFixedBoxException("Unmovable Fixed Box selected at start! Turn wasted.");
         }
 
-        // 5. Apply the Domino Effect to roll boxes
-        applyDominoEffect(row, col, direction);
-    }
-
-    /**
-     * Simulates the domino effect where pushing one box rolls subsequent boxes 
-     * in the same direction until a FixedBox or the grid boundary is reached.
-     */
-    private void applyDominoEffect(int startRow, int startCol, String direction) {
-        // Convert string to Direction enum
-        Direction dir;
-        try {
-            dir = Direction.valueOf(direction.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            System.out.println("Error: Invalid direction. Roll cancelled.");
-            return;
-        }
+        // If it's a corner, the user must choose the direction, otherwise it is automatically inward
+        boolean isCorner = boxGrid.isCorner(Cell.row(cell), Cell.col(cell));
+        Direction direction = isCorner
+                ? menu.getDirectionInput(Cell.row(cell), Cell.col(cell))
+                : engine.inwardDirection(cell);
 
-        int dRow = 0, dCol = 0;
-        
-        // Map direction strings to grid coordinate changes
-        switch(dir) {
-            case UP: dRow = -1; break;
-            case DOWN: dRow = 1; break;
-            case LEFT: dCol = -1; break;
-            case RIGHT: dCol = 1; break;
+        RollResult result = engine.roll(cell, direction);
+        if (result.getOutcome() == TurnOutcome.WASTED_FIXED) {
+            System.out.println("TURN WASTED: Unmovable Fixed Box selected at start! Turn wasted.");
+            return result.getOutcome();
         }
 
-        // Print message about rolling
-        boolean isCorner = boxGrid.isCorner(startRow, startCol);
+        String directionText = direction.name().toLowerCase();
         if (isCorner) {
-            System.out.println("The chosen box and any box on its path have been rolled " + direction.toLowerCase() + ".");
+            System.out.println("The chosen box and any box on its path have been rolled " + directionText + ".");
         } else {
-            System.out.println("The chosen box is automatically rolled " + direction.toLowerCase() + ".");
+            System.out.println("The chosen box is automatically rolled " + directionText + ".");
         }
+        if (result.getStoppedAt() != Cell.NONE) {
+            System.out.println("Domino effect stopped by FixedBox at " + Cell.toString(result.getStoppedAt()));
+            System.out.println("The roll stopped when it reached a FixedBox.");
+        }
+        return result.getOutcome();
+    }
 
-        int currR = startRow;
-        int currC = startCol;
-
-        boolean stoppedByFixed = false;
-
-        // Iterate through the grid in the rolling direction
-        while (isValid(currR, currC)) {
-            Box currentBox = boxGrid.getBox(currR, currC);
-
-            // Domino Logic: 
-            // If the current box is Fixed (doesn't allow domino) AND it is NOT the starting box,
-            // the force stops here. The FixedBox itself does not move.
-            if (!currentBox.allowsDomino() && (currR != startRow || currC != startCol)) {
-                System.out.println("Domino effect stopped by FixedBox at R" + (currR+1) + "-C" + (currC+1));
-                stoppedByFixed = true;
+    /**
+     * Executes the second stage of a turn: Opening a box and using tools.
+     * Returns WASTED_EMPTY if the opened box has no tool.
+     */
+    private TurnOutcome runSecondStage(Menu menu) {
+        int cell;
+        while (true) {
+            cell = menu.getCoordinateInput("Please enter the location of the box you want to open: ");
+            // RULE CHECK: The player can only open a box that was rolled in the previous stage.
+            if (engine.wasMoved(cell)) {
                 break;
             }
-
-            // Perform the roll on the box object 
-            currentBox.roll(dir);
-            
-            // Add this box to the list of moved boxes so it can be opened in Stage 2 
-            movedBoxesCoords.add("R" + (currR + 1) + "-C" + (currC + 1));
-
-            // Move to the next coordinate
-            currR += dRow;
-            currC += dCol;
+            System.out.println("INCORRECT INPUT: The chosen box was not rolled during the first stage.");
         }
 
-        if (stoppedByFixed) {
-            System.out.println("The roll stopped when it reached a FixedBox.");
+        // The target of a tool is only asked for when there is a tool in the box
+        int toolTarget = Cell.NONE;
+        if (boxGrid.hasTool(Cell.row(cell), Cell.col(cell))) {
+            System.out.println("Box contained a SpecialTool: " + boxGrid.getTool(Cell.row(cell), Cell.col(cell)).getToolName());
+            toolTarget = menu.getCoordinateInput("Please enter location to use the tool: ");
         }
 
+        OpenResult result = engine.open(cell, toolTarget);
+        SpecialTool tool = result.getTool();
+        switch (result.getOutcome()) {
+            case WASTED_EMPTY:
+                System.out.println("TURN WASTED: The box at " + Cell.toString(cell) + " is empty!");
+                break;
+            case TOOL_REJECTED:
+                System.out.println("TURN WASTED: " + tool.getRejectMessage(toolTarget));
+                break;
+            default:
+                System.out.println(tool.getUseMessage(toolTarget, engine.getTargetLetter()));
+        }
+        return result.getOutcome();
     }
 
     /**
-     * Calculates the automatic inward direction for non-corner edge boxes.
-     */
-    private String calculateAutoDirection(int row, int col) {
-        if (row == 0) return "DOWN";
-        if (row == BoxGrid.SIZE - 1) return "UP";
-        if (col == 0) return "RIGHT";
-        if (col == BoxGrid.SIZE - 1) return "LEFT";
-        return "RIGHT"; // Default fallback
-    }
-
-    /**
-     * Checks if coordinates are within the grid boundaries.
+     * Takes back the last turn, both stages of it if the box was opened.
      */
-    private boolean isValid(int r, int c) {
-        return r >= 0 && r < BoxGrid.SIZE && c >= 0 && c < BoxGrid.SIZE;
+    private void undoTurn() {
+        if (engine.undo() && engine.isAwaitingOpen()) {
+            engine.undo();
+        }
     }
 
     /**
-     * Executes the second stage of a turn: Opening a box and using tools.
-     * menu The menu instance.
-     * EmptyBoxException if the opened box has no tool.
+     * Plays the last turn taken back again.
      */
-    private void runSecondStage(Menu menu) throws EmptyBoxException {
-        // If no boxes moved in Stage 1 (due to exception or logic), skip Stage 2.
-        if (movedBoxesCoords.isEmpty()) {
-            System.out.println("No boxes moved in Stage 1. Skipping Stage 2.");
-            return;
-        }
-
-        String location = menu.getCoordinateInput("Please enter the location of the box you want to open: ");
-        
-        // RULE CHECK: The player can only open a box that was rolled in the previous stage. 
-        if (!movedBoxesCoords.contains(location)) {
-            System.out.println("INCORRECT INPUT: The chosen box was not rolled during the first stage.");
-            // Ask again recursively
-            runSecondStage(menu);
-            return;
-        }
-
-        Box boxToOpen = boxGrid.getBoxAt(location);
-        
-        // Retrieve the tool from the box. This also marks the box as open/empty.
-        SpecialTool tool = boxToOpen.removeTool(); 
-
-        // If the box is empty and contained no tool, throw exception to waste the turn. 
-        if (boxToOpen.isEmpty() && tool == null) {
-            throw new EmptyBoxException("The box at " + location + " is empty!");
-        }
-
-        // If a tool is found, use it immediately. 
-        if (tool != null) {
-            System.out.println("Box contained a SpecialTool: " + tool.getClass().getSimpleName());
-            String targetLoc = menu.getCoordinateInput("Please enter location to use the tool: ");
-            
-            // Using polymorphism to execute the specific tool's effect
-            tool.useTool(boxGrid, targetLoc, Letter.valueOf(String.valueOf(targetLetter))); 
+    private void redoTurn() {
+        if (engine.redo() && engine.isAwaitingOpen()) {
+            engine.redo();
         }
     }
 
@@ -290,12 +245,11 @@ public class BoxPuzzle {
      * Prints a diagram showing all surfaces of a specific box.
      * Layout matches the example in the PDF (Page 3).
      */
-    private void printCubeDiagram(String location) {
-        Box box = boxGrid.getBoxAt(location);
-        List<Letter> faces = box.getBoxFaces();
+    private void printCubeDiagram(int cell) {
+        List<Letter> faces = PackedFaces.asList(boxGrid.getPackedFaces(Cell.row(cell), Cell.col(cell)));
         // Assuming BoxFaces indices: 0:Top, 1:Bottom, 2:Front, 3:Back, 4:Left, 5:Right
 
-        System.out.println("Box Surfaces for " + location + ":");
+        System.out.println("Box Surfaces for " + Cell.toString(cell) + ":");
 
         // Blank spaces for alignment
         String indent = "      ";
@@ -322,7 +276,7 @@ public class BoxPuzzle {
      * Calculates and prints the final score (count of target letters on top faces).
      */
     private void calculateAndPrintScore() {
-        int score = boxGrid.countTopLetter(Letter.valueOf(String.valueOf(targetLetter)));
+        int score = engine.getScore();
         System.out.println("THE TOTAL NUMBER OF TARGET LETTER \"" + targetLetter + "\"");
         System.out.println("IN THE BOX GRID --> " + score);
         System.out.println("SUCCESS");
@@ -335,23 +289,22 @@ public class BoxPuzzle {
      * Helper inner class to handle user input and menu interactions.
      */
     private class Menu {
+
+        static final int PLAY = 1;
+        static final int UNDO = 2;
+        static final int REDO = 3;
         
         /**
          * Prompts user for a coordinate (e.g., R1-C1).
-         * Handles validation and standardizes the output format.
+         * Handles validation and returns the location as a packed Cell.
          */
-        public String getCoordinateInput(String msg) {
-            String input = "";
+        public int getCoordinateInput(String msg) {
             while (true) {
                 System.out.print(msg);
-                input = scanner.nextLine().trim().toUpperCase();
+                String input = scanner.nextLine();
                 try {
-                    // Validate input format using BoxGrid's parser
-                    int[] rc = boxGrid.parseLocation(input);
-                    
-                    // Standardize input to R1-C1 format to ensure consistency with movedBoxesCoords
-                    return "R" + (rc[0] + 1) + "-C" + (rc[1] + 1);
-
+                    // Validate input format and bounds using BoxGrid's parser
+                    return boxGrid.parseCell(input);
                 } catch (Exception e) {
                     System.out.println("Invalid input format. Please try again (e.g. R1-C1).");
                 }
@@ -362,28 +315,28 @@ public class BoxPuzzle {
          * Asks for rolling direction for corner boxes.
          */
 
-        public String getDirectionInput(int row, int col) {
+        public Direction getDirectionInput(int row, int col) {
             // Determine choices according to location
             String horzText;
-            String horzDir;
+            Direction horzDir;
 
             if (col == 0) {
                 horzText = "right";
-                horzDir = "RIGHT";
+                horzDir = Direction.RIGHT;
             } else {
                 horzText = "left";
-                horzDir = "LEFT";
+                horzDir = Direction.LEFT;
             }
 
             String vertText;
-            String vertDir;
+            Direction vertDir;
 
             if (row == 0) {
                 vertText = "downwards";
-                vertDir = "DOWN";
+                vertDir = Direction.DOWN;
             } else {
                 vertText = "upwards";
-                vertDir = "UP";
+                vertDir = Direction.UP;
             }
 
             while (true) {
@@ -397,6 +350,28 @@ public class BoxPuzzle {
             }
         }
 
+        /**
+         * Asks whether to play the turn, take back the last one or play a turn
+         * taken back again. Only the choices the engine allows are offered.
+         */
+        public int askToUndoOrRedo() {
+            boolean canUndo = engine.canUndo();
+            boolean canRedo = engine.canRedo();
+            String prompt = "Do you want to [1] play this turn"
+                    + (canUndo ? (canRedo ? ", " : " or ") + "[2] undo the last turn" : "")
+                    + (canRedo ? " or [3] redo the turn taken back" : "") + "? ";
+            while (true) {
+                System.out.print(prompt);
+                String input = scanner.nextLine().trim();
+
+                if (input.equals("1")) return PLAY;
+                if (input.equals("2") && canUndo) return UNDO;
+                if (input.equals("3") && canRedo) return REDO;
+
+                System.out.println("Invalid input! Please enter one of the numbers shown.");
+            }
+        }
+
         /**
          * Asks if the user wants to view the surfaces of a box.
          */
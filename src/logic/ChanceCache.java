@@ -0,0 +1,43 @@
+package logic;
+
+/**
+ * ChanceCache
+ *
+ * Fixed-size table from a 64-bit position key to the expected score of a chance
+ * node. A new entry simply overwrites whatever was in its slot, so memory never
+ * grows during a search. Key 0 marks an empty slot.
+ */
+final class ChanceCache {
+
+    private final long[] keys;
+    private final double[] values;
+    private final int mask;
+
+    ChanceCache(int capacityBits) {
+        this.keys = new long[1 << capacityBits];
+        this.values = new double[1 << capacityBits];
+        this.mask = (1 << capacityBits) - 1;
+    }
+
+    /**
+     * Returns the stored value, or NaN if the key is not in the table.
+     */
+    double get(long key) {
+        int slot = slot(key);
+        return keys[slot] == nonZero(key) ? values[slot] : Double.NaN;
+    }
+
+    void put(long key, double value) {
+        int slot = slot(key);
+        keys[slot] = nonZero(key);
+        values[slot] = value;
+    }
+
+    private int slot(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    private static long nonZero(long key) {
+        return key == 0 ? 1 : key;
+    }
+}
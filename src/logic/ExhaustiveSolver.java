@@ -0,0 +1,441 @@
+package logic;
+
+import data.repository.BoxGrid;
+import data.repository.Cell;
+import data.repository.CellState;
+import enums.Direction;
+import enums.Letter;
+import tools.SpecialTool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ExhaustiveSolver
+ *
+ * Finds the move sequence with the highest final count of the target letter when
+ * the contents of every box are known. Every turn tries each edge roll, each rolled
+ * box to open and each tool target, replaying the moves on SearchGrid copies
+ * (bitboards on the standard 8x8 board).
+ *
+ * The first turn is split into ForkJoin tasks (work stealing across cores); below
+ * that each task searches depth-first on scratch grids owned by its worker thread,
+ * one pair per turn, reset with copyFrom(...) so nothing is allocated per position.
+ *
+ * The full game tree grows exponentially with the number of turns, so the search
+ * keeps only moves that can lead to different positions (one wasted roll, one empty
+ * box, one target per row or column for the mass stamps, one FixedBox to waste a
+ * flipper or fixer on), cuts branches that cannot beat the best score found so far,
+ * and can be limited to fewer turns or a time budget. The search starts from a
+ * greedy line (the best single turn, turn after turn), so a budgeted search always
+ * returns at least that. Positions reached again by another move order, or as a
+ * rotation or reflection of one already searched with the same number of turns
+ * left, are skipped through a TranspositionTable keyed by the grid's canonical
+ * Zobrist hash. The last turn is not played out at all: each roll is scored once
+ * and every tool adds the gain of its ToolTargets target.
+ *
+ * Even so, a complete search of an 8x8 board takes a few tenths of a second for two
+ * turns on one core, and every further turn multiplies the work by the few thousand
+ * distinct turns a position allows. Five full turns cannot be searched completely in
+ * seconds; with a time budget the solver returns the best line found so far, which
+ * is at least the greedy line, and marks the result incomplete.
+ */
+public class ExhaustiveSolver {
+
+    // 2^20 entries, 16 MB
+    private static final int SEEN_TABLE_BITS = 20;
+
+    private final Letter targetLetter;
+    private final int turnCount;
+    private final long timeBudgetMillis;
+    private final ForkJoinPool pool;
+
+    /**
+     * Searches all GameEngine.TURN_COUNT turns without a time budget.
+     */
+    public ExhaustiveSolver(Letter targetLetter) {
+        this(targetLetter, GameEngine.TURN_COUNT, 0, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * timeBudgetMillis: 0 for no limit; otherwise the best sequence found when the
+     * budget runs out is returned and marked incomplete.
+     */
+    public ExhaustiveSolver(Letter targetLetter, int turnCount, long timeBudgetMillis, ForkJoinPool pool) {
+        if (turnCount < 0) {
+            throw new IllegalArgumentException("Turn count cannot be negative: " + turnCount);
+        }
+        this.targetLetter = targetLetter;
+        this.turnCount = turnCount;
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.pool = pool;
+    }
+
+    public SolverResult solve(BoxGrid grid) {
+        Search search = new Search(SearchGrid.copyOf(grid));
+        if (turnCount > 1) {
+            // a good first line makes the bound cut much earlier, and is the answer if time runs out
+            BoxGrid played = SearchGrid.copyOf(grid);
+            List<Move> greedy = greedyLine(played);
+            search.bestMoves = greedy;
+            search.bestScore = played.countTopLetter(targetLetter);
+        }
+        return search.run();
+    }
+
+    /**
+     * Plays the best single turn again and again on grid and returns those moves.
+     */
+    private List<Move> greedyLine(BoxGrid grid) {
+        GameEngine engine = new GameEngine(grid, targetLetter);
+        ExhaustiveSolver oneTurn = new ExhaustiveSolver(targetLetter, 1, 0, pool);
+        List<Move> moves = new ArrayList<>(turnCount);
+        for (int turn = 0; turn < turnCount; turn++) {
+            Move move = oneTurn.solve(grid).getMoves().get(0);
+            engine.play(move);
+            moves.add(move);
+        }
+        return moves;
+    }
+
+    // ---------------------------------------------------------
+    // One solve(...) call
+    // ---------------------------------------------------------
+
+    private final class Search {
+
+        private final BoxGrid root;
+        private final int rowCount;
+        private final int columnCount;
+        // legal first-stage moves: edgeCells[i] rolled in edgeDirections[i]
+        private final int[] edgeCells;
+        private final Direction[] edgeDirections;
+        // upper bound on how much one turn can raise the score
+        private final int maxGainPerTurn;
+        private final long deadline;
+        // positions searched so far, null when there is only one turn to search
+        private final TranspositionTable seen;
+
+        private final LongAdder searchedNodes = new LongAdder();
+        private final ThreadLocal<Scratch> scratch;
+        private volatile boolean stopped;
+
+        private volatile int bestScore = -1;
+        private List<Move> bestMoves = List.of();
+
+        Search(BoxGrid root) {
+            this.root = root;
+            this.rowCount = root.getRowCount();
+            this.columnCount = root.getColumnCount();
+            this.scratch = ThreadLocal.withInitial(() -> new Scratch(root, turnCount));
+
+            GameEngine rules = new GameEngine(root, targetLetter);
+            List<Integer> cells = new ArrayList<>();
+            List<Direction> directions = new ArrayList<>();
+            for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+                for (int colIndex = 0; colIndex < columnCount; colIndex++) {
+                    if (!root.isEdge(rowIndex, colIndex)) {
+                        continue;
+                    }
+                    int cell = Cell.of(rowIndex, colIndex);
+                    for (Direction direction : Direction.values()) {
+                        if (rules.isLegalDirection(cell, direction)) {
+                            cells.add(cell);
+                            directions.add(direction);
+                        }
+                    }
+                }
+            }
+            this.edgeCells = cells.stream().mapToInt(Integer::intValue).toArray();
+            this.edgeDirections = directions.toArray(new Direction[0]);
+
+            int longestLine = Math.max(rowCount, columnCount);
+            this.maxGainPerTurn = longestLine + Math.max(longestLine, 5);
+            this.deadline = timeBudgetMillis > 0 ? System.nanoTime() + timeBudgetMillis * 1_000_000L : 0;
+            this.seen = turnCount > 1 ? new TranspositionTable(SEEN_TABLE_BITS) : null;
+        }
+
+        SolverResult run() {
+            pool.invoke(new TurnTask(root, 0, new int[4 * turnCount]));
+            synchronized (this) {
+                return new SolverResult(bestScore, bestMoves, searchedNodes.sum(), !stopped);
+            }
+        }
+
+        // depth-first search below the split level, on the thread's scratch grids
+        private void search(BoxGrid grid, int turn, Scratch s) {
+            if (stopped) {
+                return;
+            }
+            searchedNodes.increment();
+            if (deadline != 0 && (++s.sinceClockCheck & 1023) == 0 && System.nanoTime() > deadline) {
+                stopped = true;
+                return;
+            }
+
+            int score = grid.countTopLetter(targetLetter);
+            if (turn == turnCount) {
+                offer(score, s);
+                return;
+            }
+            int bound = Math.min(rowCount * columnCount, score + (turnCount - turn) * maxGainPerTurn);
+            if (bound <= bestScore) {
+                return;
+            }
+            if (seen != null && turn > 0 && alreadySearched(grid, turnCount - turn)) {
+                return;
+            }
+            if (turn == turnCount - 1) {
+                lastTurn(grid, turn, s);
+            } else {
+                expand(grid, turn, s, null);
+            }
+        }
+
+        /**
+         * expand(...) for the last turn. Nothing is searched after it, so a tool is
+         * worth exactly the gain of its ToolTargets target, worked out once per roll
+         * and tool kind instead of playing every target on a copy of the grid.
+         */
+        private void lastTurn(BoxGrid grid, int turn, Scratch s) {
+            BoxGrid rolled = s.rolled[turn];
+            int[] rolledCells = s.rolledCells[turn];
+            long[] moves = s.moves[turn];
+            long[] bestTargets = s.bestTargets;
+
+            int moveCount = MoveGenerator.generateRolls(grid, targetLetter, moves);
+            if (moveCount < edgeCells.length) {
+                for (int move = 0; move < edgeCells.length; move++) {
+                    if (!grid.canRoll(Cell.row(edgeCells[move]), Cell.col(edgeCells[move]))) {
+                        s.setTurn(turn, edgeCells[move], edgeDirections[move], Cell.NONE, Cell.NONE);
+                        offer(grid.countTopLetter(targetLetter), s);
+                        break;
+                    }
+                }
+            }
+
+            for (int move = 0; move < moveCount; move++) {
+                int edgeCell = MoveGenerator.cell(moves[move]);
+                Direction direction = MoveGenerator.direction(moves[move]);
+                rolled.copyFrom(grid);
+                int rolledCount = GameEngine.rollPath(rolled, edgeCell, direction, rolledCells);
+                int score = rolled.countTopLetter(targetLetter);
+                boolean emptyTried = false;
+                // bit k set once bestTargets[k] is known for this roll
+                int knownKinds = 0;
+                for (int i = 0; i < rolledCount; i++) {
+                    int openCell = rolledCells[i];
+                    int openRow = Cell.row(openCell);
+                    int openCol = Cell.col(openCell);
+                    if (!rolled.hasTool(openRow, openCol)) {
+                        if (!emptyTried) {
+                            emptyTried = true;
+                            s.setTurn(turn, edgeCell, direction, openCell, Cell.NONE);
+                            offer(score, s);
+                        }
+                        continue;
+                    }
+                    byte toolKind = CellState.toolKindOf(rolled.getTool(openRow, openCol));
+                    if ((knownKinds & (1 << toolKind)) == 0) {
+                        knownKinds |= 1 << toolKind;
+                        bestTargets[toolKind] = ToolTargets.best(rolled, toolKind, targetLetter);
+                    }
+                    s.setTurn(turn, edgeCell, direction, openCell, ToolTargets.target(bestTargets[toolKind]));
+                    offer(score + ToolTargets.gain(bestTargets[toolKind]), s);
+                }
+            }
+        }
+
+        /**
+         * Plays every distinct turn from grid. Each resulting position is searched
+         * right away, or copied into a new task when tasks is not null.
+         */
+        private void expand(BoxGrid grid, int turn, Scratch s, List<TurnTask> tasks) {
+            BoxGrid rolled = s.rolled[turn];
+            BoxGrid opened = s.opened[turn];
+            int[] rolledCells = s.rolledCells[turn];
+            long[] moves = s.moves[turn];
+
+            // the most promising rolls first, so good lines are found early and cut more
+            int moveCount = MoveGenerator.generateRolls(grid, targetLetter, moves);
+            MoveGenerator.sortByPreScore(moves, moveCount);
+            if (moveCount < edgeCells.length) {
+                // some edge box is a FixedBox; every wasted roll leaves the grid as it was, one is enough
+                for (int move = 0; move < edgeCells.length; move++) {
+                    if (!grid.canRoll(Cell.row(edgeCells[move]), Cell.col(edgeCells[move]))) {
+                        s.setTurn(turn, edgeCells[move], edgeDirections[move], Cell.NONE, Cell.NONE);
+                        child(grid, turn, s, tasks);
+                        break;
+                    }
+                }
+            }
+
+            for (int move = 0; move < moveCount; move++) {
+                int edgeCell = MoveGenerator.cell(moves[move]);
+                Direction direction = MoveGenerator.direction(moves[move]);
+                rolled.copyFrom(grid);
+                int rolledCount = GameEngine.rollPath(rolled, edgeCell, direction, rolledCells);
+                boolean emptyTried = false;
+                for (int i = 0; i < rolledCount; i++) {
+                    int openCell = rolledCells[i];
+                    int openRow = Cell.row(openCell);
+                    int openCol = Cell.col(openCell);
+                    if (!rolled.hasTool(openRow, openCol)) {
+                        // opening any empty box wastes the turn the same way
+                        if (!emptyTried) {
+                            emptyTried = true;
+                            s.setTurn(turn, edgeCell, direction, openCell, Cell.NONE);
+                            child(rolled, turn, s, tasks);
+                        }
+                        continue;
+                    }
+
+                    byte toolKind = CellState.toolKindOf(rolled.getTool(openRow, openCol));
+                    boolean rejectable = toolKind == CellState.TOOL_FLIPPER || toolKind == CellState.TOOL_FIXER;
+                    boolean rejectionTried = false;
+                    int targetCount = toolKind == CellState.TOOL_MASS_ROW ? rowCount
+                            : toolKind == CellState.TOOL_MASS_COLUMN ? columnCount
+                            : rowCount * columnCount;
+                    for (int k = 0; k < targetCount; k++) {
+                        int target = toolKind == CellState.TOOL_MASS_ROW ? Cell.of(k, 0)
+                                : toolKind == CellState.TOOL_MASS_COLUMN ? Cell.of(0, k)
+                                : Cell.of(k / columnCount, k % columnCount);
+                        if (rejectable && rolled.isFixed(Cell.row(target), Cell.col(target))) {
+                            // a rejected use still uses up the tool and may be the best play,
+                            // but every FixedBox rejects it the same way, one is enough
+                            if (rejectionTried) {
+                                continue;
+                            }
+                            rejectionTried = true;
+                        }
+                        opened.copyFrom(rolled);
+                        SpecialTool tool = opened.removeTool(openRow, openCol);
+                        tool.useTool(opened, target, targetLetter);
+                        s.setTurn(turn, edgeCell, direction, openCell, target);
+                        child(opened, turn, s, tasks);
+                    }
+                }
+            }
+        }
+
+        private void child(BoxGrid childGrid, int turn, Scratch s, List<TurnTask> tasks) {
+            if (tasks != null) {
+                tasks.add(new TurnTask(SearchGrid.copyOf(childGrid), turn + 1, s.line.clone()));
+            } else {
+                search(childGrid, turn + 1, s);
+            }
+        }
+
+        /**
+         * True if the position, or a symmetric one, was searched before with the same
+         * number of turns left; otherwise records it. Skipping it is safe because the
+         * best score only grows, so that search already cut everything this one would.
+         */
+        private boolean alreadySearched(BoxGrid grid, int turnsLeft) {
+            long key = grid.getCanonicalHash() ^ (turnsLeft * 0x9E3779B97F4A7C15L);
+            long entry = seen.probe(key);
+            if (entry != TranspositionTable.MISS && TranspositionTable.depthOf(entry) == turnsLeft) {
+                return true;
+            }
+            seen.store(key, turnsLeft, grid.countTopLetter(targetLetter));
+            return false;
+        }
+
+        private void offer(int score, Scratch s) {
+            if (score <= bestScore) {
+                return;
+            }
+            synchronized (this) {
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMoves = s.lineMoves(turnCount);
+                }
+            }
+        }
+
+        /**
+         * The first turn is expanded into one task per resulting position; each
+         * task then searches the remaining turns on its own.
+         */
+        private final class TurnTask extends RecursiveAction {
+
+            private static final long serialVersionUID = 1L;
+
+            private final BoxGrid grid;
+            private final int turn;
+            private final int[] line;
+
+            TurnTask(BoxGrid grid, int turn, int[] line) {
+                this.grid = grid;
+                this.turn = turn;
+                this.line = line;
+            }
+
+            @Override
+            protected void compute() {
+                Scratch s = scratch.get();
+                System.arraycopy(line, 0, s.line, 0, line.length);
+                if (turn == 0 && turnCount > 1) {
+                    List<TurnTask> tasks = new ArrayList<>();
+                    expand(grid, turn, s, tasks);
+                    invokeAll(tasks);
+                } else {
+                    search(grid, turn, s);
+                }
+            }
+        }
+    }
+
+    /**
+     * Per-thread working memory: a rolled and an opened grid per turn, the roll
+     * buffer and rolled cells of each turn and the moves of the line being searched.
+     */
+    private static final class Scratch {
+
+        private final BoxGrid[] rolled;
+        private final BoxGrid[] opened;
+        private final int[][] rolledCells;
+        private final long[][] moves;
+        // best ToolTargets result per tool kind, for the last turn
+        private final long[] bestTargets = new long[CellState.TOOL_FIXER + 1];
+        // 4 ints per turn: roll cell, direction ordinal, open cell, tool target
+        private final int[] line;
+        private int sinceClockCheck;
+
+        Scratch(BoxGrid template, int turnCount) {
+            this.rolled = new BoxGrid[turnCount];
+            this.opened = new BoxGrid[turnCount];
+            this.rolledCells = new int[turnCount][Math.max(template.getRowCount(), template.getColumnCount())];
+            this.moves = new long[turnCount][MoveGenerator.maxRollCount(template)];
+            this.line = new int[4 * turnCount];
+            for (int turn = 0; turn < turnCount; turn++) {
+                rolled[turn] = SearchGrid.copyOf(template);
+                opened[turn] = SearchGrid.copyOf(template);
+                // positions after the last turn are never looked up, so only earlier ones pay for hashing
+                if (turn < turnCount - 1) {
+                    rolled[turn].getStateHash();
+                    opened[turn].getStateHash();
+                }
+            }
+        }
+
+        void setTurn(int turn, int rollCell, Direction direction, int openCell, int toolTarget) {
+            line[4 * turn] = rollCell;
+            line[4 * turn + 1] = direction.ordinal();
+            line[4 * turn + 2] = openCell;
+            line[4 * turn + 3] = toolTarget;
+        }
+
+        List<Move> lineMoves(int turnCount) {
+            Direction[] directions = Direction.values();
+            List<Move> moves = new ArrayList<>(turnCount);
+            for (int turn = 0; turn < turnCount; turn++) {
+                moves.add(new Move(line[4 * turn], directions[line[4 * turn + 1]], line[4 * turn + 2], line[4 * turn + 3]));
+            }
+            return moves;
+        }
+    }
+}
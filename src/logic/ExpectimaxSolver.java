@@ -0,0 +1,327 @@
+package logic;
+
+import data.factory.ToolFactory;
+import data.repository.BoxGrid;
+import data.repository.Cell;
+import data.repository.CellState;
+import enums.Direction;
+import enums.Letter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ExpectimaxSolver
+ *
+ * Plans the next turn the way a real player has to: without knowing which tool
+ * is inside a box. Rolls and the choice of box are max nodes; opening a box is a
+ * chance node over the tool kinds, weighted with ToolFactory.toolChance. A box
+ * already showing "O" is known to be empty and FixedBoxes never hold a tool, so
+ * the odds of an unopened box are the ToolFactory odds given that it is not empty.
+ *
+ * Once a tool is found its target is chosen by immediate gain with ToolTargets
+ * (the best row, column or plus to stamp, the best box to flip or a FixedBox to
+ * waste the flipper on, the first box that can be fixed), which keeps a chance
+ * node at one child per tool kind. Chance node values are cached by position,
+ * and the search deepens one turn at a time until the remaining turns are
+ * covered or the time budget runs out.
+ */
+public class ExpectimaxSolver {
+
+    // 2^20 cached chance nodes
+    private static final int CACHE_BITS = 20;
+    private static final byte[] TOOL_KINDS = {
+            CellState.TOOL_PLUS_SHAPE, CellState.TOOL_MASS_ROW, CellState.TOOL_MASS_COLUMN,
+            CellState.TOOL_FLIPPER, CellState.TOOL_FIXER
+    };
+
+    private final Letter targetLetter;
+    private final long timeBudgetMillis;
+
+    public ExpectimaxSolver(Letter targetLetter, long timeBudgetMillis) {
+        this.targetLetter = targetLetter;
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+
+    /**
+     * Recommends the next turn when turnsLeft turns remain (at least one).
+     * The first turn is always searched completely, deeper searches only within
+     * the time budget.
+     */
+    public TurnPolicy plan(BoxGrid grid, int turnsLeft) {
+        if (turnsLeft < 1) {
+            throw new IllegalArgumentException("No turns left to plan");
+        }
+        Search search = new Search(SearchGrid.copyOf(grid), turnsLeft);
+        TurnPolicy best = search.root(1);
+        for (int depth = 2; depth <= turnsLeft && !search.outOfTime(); depth++) {
+            TurnPolicy deeper = search.root(depth);
+            if (deeper == null) {
+                break;
+            }
+            best = deeper;
+        }
+        return best;
+    }
+
+    // ---------------------------------------------------------
+    // One plan(...) call
+    // ---------------------------------------------------------
+
+    private final class Search {
+
+        private final BoxGrid root;
+        private final int rowCount;
+        private final int columnCount;
+        private final int[] edgeCells;
+        private final Direction[] edgeDirections;
+        private final long deadline;
+        private final ChanceCache cache = new ChanceCache(CACHE_BITS);
+
+        // one rolled and one opened scratch grid per turn of look-ahead
+        private final BoxGrid[] rolled;
+        private final BoxGrid[] opened;
+        private final int[][] rolledCells;
+
+        // depth of the current iteration; deeper iterations may not use its time
+        private int iterationDepth;
+        private boolean stopped;
+        // greedy gain per tool kind, reused by lastTurnValue(...)
+        private final double[] toolGains = new double[TOOL_KINDS.length + 1];
+
+        Search(BoxGrid root, int turnsLeft) {
+            this.root = root;
+            this.rowCount = root.getRowCount();
+            this.columnCount = root.getColumnCount();
+            this.deadline = System.nanoTime() + timeBudgetMillis * 1_000_000L;
+
+            GameEngine rules = new GameEngine(root, targetLetter);
+            List<Integer> cells = new ArrayList<>();
+            List<Direction> directions = new ArrayList<>();
+            for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+                for (int colIndex = 0; colIndex < columnCount; colIndex++) {
+                    if (!root.isEdge(rowIndex, colIndex)) {
+                        continue;
+                    }
+                    int cell = Cell.of(rowIndex, colIndex);
+                    for (Direction direction : Direction.values()) {
+                        if (rules.isLegalDirection(cell, direction)) {
+                            cells.add(cell);
+                            directions.add(direction);
+                        }
+                    }
+                }
+            }
+            this.edgeCells = cells.stream().mapToInt(Integer::intValue).toArray();
+            this.edgeDirections = directions.toArray(new Direction[0]);
+
+            this.rolled = new BoxGrid[turnsLeft];
+            this.opened = new BoxGrid[turnsLeft];
+            this.rolledCells = new int[turnsLeft][Math.max(rowCount, columnCount)];
+            for (int turn = 0; turn < turnsLeft; turn++) {
+                rolled[turn] = SearchGrid.copyOf(root);
+                opened[turn] = SearchGrid.copyOf(root);
+            }
+        }
+
+        boolean outOfTime() {
+            return System.nanoTime() > deadline;
+        }
+
+        /**
+         * Searches depth turns ahead and returns the best first turn,
+         * or null if the time budget ran out first.
+         */
+        TurnPolicy root(int depth) {
+            iterationDepth = depth;
+            stopped = false;
+
+            double bestValue = Double.NEGATIVE_INFINITY;
+            int bestRoll = Cell.NONE;
+            Direction bestDirection = null;
+            int bestOpen = Cell.NONE;
+            int[] bestTargets = new int[TOOL_KINDS.length + 1];
+            boolean wastedRollTried = false;
+
+            for (int move = 0; move < edgeCells.length; move++) {
+                int edgeCell = edgeCells[move];
+                Direction direction = edgeDirections[move];
+                if (!root.canRoll(Cell.row(edgeCell), Cell.col(edgeCell))) {
+                    if (!wastedRollTried) {
+                        wastedRollTried = true;
+                        double value = value(root, depth - 1, 1);
+                        if (value > bestValue) {
+                            bestValue = value;
+                            bestRoll = edgeCell;
+                            bestDirection = direction;
+                            bestOpen = Cell.NONE;
+                        }
+                    }
+                    continue;
+                }
+
+                BoxGrid rolledGrid = rolled[0];
+                rolledGrid.copyFrom(root);
+                int rolledCount = GameEngine.rollPath(rolledGrid, edgeCell, direction, rolledCells[0]);
+                for (int i = 0; i < rolledCount; i++) {
+                    int openCell = rolledCells[0][i];
+                    double value = openValue(rolledGrid, openCell, depth, 0);
+                    if (stopped) {
+                        return null;
+                    }
+                    if (value > bestValue) {
+                        bestValue = value;
+                        bestRoll = edgeCell;
+                        bestDirection = direction;
+                        bestOpen = openCell;
+                        for (byte toolKind : TOOL_KINDS) {
+                            bestTargets[toolKind] = ToolTargets.target(ToolTargets.best(rolledGrid, toolKind, targetLetter));
+                        }
+                    }
+                }
+            }
+            return stopped ? null : new TurnPolicy(bestRoll, bestDirection, bestOpen, bestTargets, bestValue, depth);
+        }
+
+        // max node: expected final score with turnsLeft turns still to be played
+        private double value(BoxGrid grid, int turnsLeft, int turn) {
+            if (turnsLeft == 0 || stopped) {
+                return grid.countTopLetter(targetLetter);
+            }
+            if (iterationDepth > 1 && outOfTime()) {
+                stopped = true;
+                return 0;
+            }
+            if (turnsLeft == 1) {
+                return lastTurnValue(grid, turn);
+            }
+
+            double best = Double.NEGATIVE_INFINITY;
+            boolean wastedRollTried = false;
+            for (int move = 0; move < edgeCells.length; move++) {
+                int edgeCell = edgeCells[move];
+                if (!grid.canRoll(Cell.row(edgeCell), Cell.col(edgeCell))) {
+                    // every wasted roll leaves the grid as it was
+                    if (!wastedRollTried) {
+                        wastedRollTried = true;
+                        best = Math.max(best, value(grid, turnsLeft - 1, turn + 1));
+                    }
+                    continue;
+                }
+                BoxGrid rolledGrid = rolled[turn];
+                rolledGrid.copyFrom(grid);
+                int rolledCount = GameEngine.rollPath(rolledGrid, edgeCell, edgeDirections[move], rolledCells[turn]);
+                boolean emptyTried = false;
+                for (int i = 0; i < rolledCount; i++) {
+                    int openCell = rolledCells[turn][i];
+                    if (isKnownEmpty(rolledGrid, openCell)) {
+                        // opening any known empty box wastes the turn the same way
+                        if (emptyTried) {
+                            continue;
+                        }
+                        emptyTried = true;
+                    }
+                    best = Math.max(best, openValue(rolledGrid, openCell, turnsLeft, turn));
+                }
+            }
+            return best;
+        }
+
+        /**
+         * value(...) for the last turn. Nothing is searched after it, so a tool is worth
+         * exactly the gain of its greedy target and no opened grids are needed.
+         */
+        private double lastTurnValue(BoxGrid grid, int turn) {
+            double best = Double.NEGATIVE_INFINITY;
+            for (int move = 0; move < edgeCells.length; move++) {
+                int edgeCell = edgeCells[move];
+                if (!grid.canRoll(Cell.row(edgeCell), Cell.col(edgeCell))) {
+                    best = Math.max(best, grid.countTopLetter(targetLetter));
+                    continue;
+                }
+                BoxGrid rolledGrid = rolled[turn];
+                rolledGrid.copyFrom(grid);
+                int rolledCount = GameEngine.rollPath(rolledGrid, edgeCell, edgeDirections[move], rolledCells[turn]);
+                int score = rolledGrid.countTopLetter(targetLetter);
+                boolean gainsKnown = false;
+                for (int i = 0; i < rolledCount; i++) {
+                    int openCell = rolledCells[turn][i];
+                    if (isKnownEmpty(rolledGrid, openCell)) {
+                        best = Math.max(best, score);
+                        continue;
+                    }
+                    if (!gainsKnown) {
+                        gainsKnown = true;
+                        for (byte toolKind : TOOL_KINDS) {
+                            toolGains[toolKind] = ToolTargets.gain(ToolTargets.best(rolledGrid, toolKind, targetLetter));
+                        }
+                    }
+                    byte boxType = CellState.typeOf(rolledGrid.getBoxTypeMarker(Cell.row(openCell), Cell.col(openCell)));
+                    double noTool = ToolFactory.toolChance(boxType, CellState.TOOL_NONE);
+                    double expected = score;
+                    for (byte toolKind : TOOL_KINDS) {
+                        expected += ToolFactory.toolChance(boxType, toolKind) / (1 - noTool) * toolGains[toolKind];
+                    }
+                    best = Math.max(best, expected);
+                }
+            }
+            return best;
+        }
+
+        // chance node: opening openCell in the rolled grid
+        private double openValue(BoxGrid rolledGrid, int openCell, int turnsLeft, int turn) {
+            int openRow = Cell.row(openCell);
+            int openCol = Cell.col(openCell);
+            if (isKnownEmpty(rolledGrid, openCell)) {
+                return value(rolledGrid, turnsLeft - 1, turn + 1);
+            }
+
+            long key = positionKey(rolledGrid, openCell, turnsLeft);
+            double cached = cache.get(key);
+            if (!Double.isNaN(cached)) {
+                return cached;
+            }
+
+            byte boxType = CellState.typeOf(rolledGrid.getBoxTypeMarker(openRow, openCol));
+            double noTool = ToolFactory.toolChance(boxType, CellState.TOOL_NONE);
+            double expected = 0;
+            for (byte toolKind : TOOL_KINDS) {
+                // the box shows it is not empty, so the odds are the ones given a tool
+                double chance = ToolFactory.toolChance(boxType, toolKind) / (1 - noTool);
+                if (chance == 0) {
+                    continue;
+                }
+                BoxGrid openedGrid = opened[turn];
+                openedGrid.copyFrom(rolledGrid);
+                openedGrid.removeTool(openRow, openCol);
+                int target = ToolTargets.target(ToolTargets.best(openedGrid, toolKind, targetLetter));
+                CellState.toolOf(toolKind).useTool(openedGrid, target, targetLetter);
+                expected += chance * value(openedGrid, turnsLeft - 1, turn + 1);
+            }
+            if (!stopped) {
+                cache.put(key, expected);
+            }
+            return expected;
+        }
+
+        private boolean isKnownEmpty(BoxGrid grid, int cell) {
+            int row = Cell.row(cell);
+            int col = Cell.col(cell);
+            return grid.isFixed(row, col) || grid.isEmpty(row, col);
+        }
+
+        // what the player can see of the position, plus the chance node being evaluated
+        private long positionKey(BoxGrid grid, int openCell, int turnsLeft) {
+            long hash = 0x9E3779B97F4A7C15L ^ ((long) openCell << 8) ^ turnsLeft;
+            for (int row = 0; row < rowCount; row++) {
+                for (int col = 0; col < columnCount; col++) {
+                    long cell = grid.getPackedFaces(row, col)
+                            | (long) grid.getBoxTypeMarker(row, col) << 18
+                            | (grid.isEmpty(row, col) ? 1L << 26 : 0);
+                    hash = Long.rotateLeft(hash ^ cell, 27) * 0x9E3779B97F4A7C15L;
+                }
+            }
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package logic;
+
+import data.repository.BoxGrid;
+import data.repository.Cell;
+import data.repository.MoveJournal;
+import enums.Direction;
+import enums.Letter;
+import enums.TurnOutcome;
+import tools.SpecialTool;
+
+import java.util.BitSet;
+
+/**
+ * GameEngine
+ *
+ * The game rules without any console input or output. A turn is one roll(...)
+ * followed by one open(...); the results are returned instead of printed, so the
+ * engine can be driven from code as fast as the grid allows. BoxPuzzle is the
+ * console adapter on top of it.
+ *
+ * Wasted turns are reported through TurnOutcome; exceptions are only thrown for
+ * invalid commands (a non-edge box, an illegal direction, calls out of order).
+ *
+ * When the grid keeps a journal (BoxGrid.startJournal()), every roll and every
+ * open is one journal move, and undo()/redo() take a stage back or play it again
+ * together with the turn state: the completed turns, the rolled boxes and
+ * whether an open is expected.
+ */
+public class GameEngine {
+
+    public static final int TURN_COUNT = 5;
+
+    private final BoxGrid boxGrid;
+    private final Letter targetLetter;
+
+    // boxes rolled in the first stage of the current turn, one bit per cell (row * columns + col)
+    private final BitSet movedBoxes;
+    // the same boxes in roll order, reused by every roll
+    private final int[] rolledCells;
+    // the boxes rolled in every turn played so far, kept for undo and redo
+    private final int[][] turnRolledCells;
+    private final int[] turnRolledCounts;
+
+    private int completedTurns;
+    // true between a successful roll(...) and the open(...) of the same turn
+    private boolean awaitingOpen;
+
+    public GameEngine(BoxGrid boxGrid, Letter targetLetter) {
+        this.boxGrid = boxGrid;
+        this.targetLetter = targetLetter;
+        this.movedBoxes = new BitSet(boxGrid.getRowCount() * boxGrid.getColumnCount());
+        this.rolledCells = new int[Math.max(boxGrid.getRowCount(), boxGrid.getColumnCount())];
+        this.turnRolledCells = new int[TURN_COUNT][rolledCells.length];
+        this.turnRolledCounts = new int[TURN_COUNT];
+    }
+
+    public BoxGrid getGrid() {
+        return boxGrid;
+    }
+
+    public Letter getTargetLetter() {
+        return targetLetter;
+    }
+
+    /**
+     * Number of turns already played, wasted turns included.
+     */
+    public int getCompletedTurns() {
+        return completedTurns;
+    }
+
+    public boolean isOver() {
+        return completedTurns >= TURN_COUNT;
+    }
+
+    /**
+     * True after a roll, when the turn continues with open(...).
+     */
+    public boolean isAwaitingOpen() {
+        return awaitingOpen;
+    }
+
+    public int getScore() {
+        return boxGrid.countTopLetter(targetLetter);
+    }
+
+    /**
+     * The index-th box rolled in the first stage of the current turn, starting
+     * with the edge box (see RollResult.getRolledCount).
+     */
+    public int getRolledCell(int index) {
+        return rolledCells[index];
+    }
+
+    /**
+     * True if the box was rolled in the first stage of the current turn.
+     */
+    public boolean wasMoved(int cell) {
+        return movedBoxes.get(bitIndex(Cell.row(cell), Cell.col(cell)));
+    }
+
+    // ---------------------------------------------------------
+    // Stage 1: rolling
+    // ---------------------------------------------------------
+
+    /**
+     * The direction a non-corner edge box is rolled in (always inward).
+     */
+    public Direction inwardDirection(int cell) {
+        return inwardDirection(boxGrid, Cell.row(cell), Cell.col(cell));
+    }
+
+    static Direction inwardDirection(BoxGrid grid, int row, int col) {
+        if (row == 0) return Direction.DOWN;
+        if (row == grid.getRowCount() - 1) return Direction.UP;
+        if (col == 0) return Direction.RIGHT;
+        if (col == grid.getColumnCount() - 1) return Direction.LEFT;
+        return Direction.RIGHT;
+    }
+
+    // the two directions a corner box can be rolled in
+    static Direction horizontalInward(int col) {
+        return col == 0 ? Direction.RIGHT : Direction.LEFT;
+    }
+
+    static Direction verticalInward(int row) {
+        return row == 0 ? Direction.DOWN : Direction.UP;
+    }
+
+    /**
+     * Corner boxes can be rolled inward along the row or along the column,
+     * other edge boxes only in their inward direction.
+     */
+    public boolean isLegalDirection(int cell, Direction direction) {
+        int row = Cell.row(cell);
+        int col = Cell.col(cell);
+        if (!boxGrid.isCorner(row, col)) {
+            return direction == inwardDirection(cell);
+        }
+        return direction == horizontalInward(col) || direction == verticalInward(row);
+    }
+
+    /**
+     * First stage of a turn: rolls the edge box and every box behind it in the
+     * given direction, until a FixedBox or the grid boundary is reached.
+     * The outcome is WASTED_FIXED if the edge box itself is fixed.
+     */
+    public RollResult roll(int edgeCell, Direction direction) {
+        if (isOver() || awaitingOpen) {
+            throw new IllegalStateException("Not expecting a roll now");
+        }
+        int startRow = Cell.row(edgeCell);
+        int startCol = Cell.col(edgeCell);
+        if (!boxGrid.isInside(startRow, startCol) || !boxGrid.isEdge(startRow, startCol)) {
+            throw new IllegalArgumentException("The chosen box is not on any of the edges: " + Cell.toString(edgeCell));
+        }
+        if (!isLegalDirection(edgeCell, direction)) {
+            throw new IllegalArgumentException("The box at " + Cell.toString(edgeCell) + " cannot be rolled " + direction);
+        }
+
+        movedBoxes.clear();
+        beginJournalMove();
+        // FixedBoxes cannot be moved, this wastes the turn
+        if (!boxGrid.canRoll(startRow, startCol)) {
+            turnRolledCounts[completedTurns] = 0;
+            completedTurns++;
+            return new RollResult(TurnOutcome.WASTED_FIXED, direction, 0, Cell.NONE);
+        }
+
+        int rolledCount = rollPath(boxGrid, edgeCell, direction, rolledCells);
+        for (int i = 0; i < rolledCount; i++) {
+            movedBoxes.set(bitIndex(Cell.row(rolledCells[i]), Cell.col(rolledCells[i])));
+        }
+        System.arraycopy(rolledCells, 0, turnRolledCells[completedTurns], 0, rolledCount);
+        turnRolledCounts[completedTurns] = rolledCount;
+        // the roll either ran to the boundary or was stopped by the FixedBox right after the last rolled box
+        int last = rolledCells[rolledCount - 1];
+        int nextRow = Cell.row(last) + rowStep(direction);
+        int nextCol = Cell.col(last) + colStep(direction);
+        int stoppedAt = boxGrid.isInside(nextRow, nextCol) ? Cell.of(nextRow, nextCol) : Cell.NONE;
+
+        awaitingOpen = true;
+        return new RollResult(TurnOutcome.ROLLED, direction, rolledCount, stoppedAt);
+    }
+
+    /**
+     * The domino effect on its own, for searches that replay moves on scratch grids:
+     * rolls the edge box and every box behind it until a FixedBox or the grid
+     * boundary is reached, and writes the rolled cells into rolledCells (room for
+     * max(rows, columns) cells). Returns the number of rolled boxes.
+     * The caller has already checked that the edge box itself can roll.
+     */
+    public static int rollPath(BoxGrid grid, int edgeCell, Direction direction, int[] rolledCells) {
+        int dRow = rowStep(direction);
+        int dCol = colStep(direction);
+        int startRow = Cell.row(edgeCell);
+        int startCol = Cell.col(edgeCell);
+
+        // Domino Logic: a FixedBox that is not the starting box stops the force and does not move
+        int rolledCount = grid.dominoRunLength(startRow, startCol, direction);
+        grid.rollRange(startRow, startCol, direction, rolledCount);
+        for (int i = 0; i < rolledCount; i++) {
+            rolledCells[i] = Cell.of(startRow + i * dRow, startCol + i * dCol);
+        }
+        return rolledCount;
+    }
+
+    private static int rowStep(Direction direction) {
+        return direction == Direction.UP ? -1 : direction == Direction.DOWN ? 1 : 0;
+    }
+
+    private static int colStep(Direction direction) {
+        return direction == Direction.LEFT ? -1 : direction == Direction.RIGHT ? 1 : 0;
+    }
+
+    // ---------------------------------------------------------
+    // Stage 2: opening
+    // ---------------------------------------------------------
+
+    /**
+     * Second stage of a turn: opens a box rolled in the first stage and, if it holds a
+     * SpecialTool, uses it on toolTarget. toolTarget is ignored when the box has no
+     * tool, so Cell.NONE can be passed if it is not known yet (see BoxGrid.hasTool).
+     * The outcome is WASTED_EMPTY if the box contains no tool.
+     */
+    public OpenResult open(int cell, int toolTarget) {
+        if (!awaitingOpen) {
+            throw new IllegalStateException("Not expecting a box to be opened now");
+        }
+        int row = Cell.row(cell);
+        int col = Cell.col(cell);
+        if (!boxGrid.isInside(row, col) || !wasMoved(cell)) {
+            throw new IllegalArgumentException("The chosen box was not rolled during the first stage: " + Cell.toString(cell));
+        }
+        boolean hasTool = boxGrid.hasTool(row, col);
+        if (hasTool && (toolTarget == Cell.NONE || !boxGrid.isInside(Cell.row(toolTarget), Cell.col(toolTarget)))) {
+            throw new IllegalArgumentException("Invalid tool location");
+        }
+
+        beginJournalMove();
+        awaitingOpen = false;
+        completedTurns++;
+
+        // Retrieve the tool from the box. This also marks the box as open/empty.
+        SpecialTool tool = boxGrid.removeTool(row, col);
+        if (tool == null) {
+            return new OpenResult(TurnOutcome.WASTED_EMPTY, null, Cell.NONE);
+        }
+        return new OpenResult(tool.useTool(boxGrid, toolTarget, targetLetter), tool, toolTarget);
+    }
+
+    /**
+     * Plays a whole turn chosen by a solver and returns how it ended.
+     */
+    public TurnOutcome play(Move move) {
+        RollResult rolled = roll(move.getRollCell(), move.getDirection());
+        if (rolled.getOutcome() != TurnOutcome.ROLLED) {
+            return rolled.getOutcome();
+        }
+        return open(move.getOpenCell(), move.getToolTarget()).getOutcome();
+    }
+
+    // ---------------------------------------------------------
+    // Undo and redo
+    // ---------------------------------------------------------
+
+    // each stage is one undo step when the grid keeps a journal
+    private void beginJournalMove() {
+        MoveJournal journal = boxGrid.getJournal();
+        if (journal != null) {
+            journal.beginMove();
+        }
+    }
+
+    public boolean canUndo() {
+        MoveJournal journal = boxGrid.getJournal();
+        return journal != null && journal.canUndo();
+    }
+
+    public boolean canRedo() {
+        MoveJournal journal = boxGrid.getJournal();
+        return journal != null && journal.canRedo();
+    }
+
+    /**
+     * Takes back the last roll or open and puts the turn state back as it was
+     * before it. Returns false if the journal holds nothing to take back, which is
+     * also the case for stages played before the journal was started. The grid
+     * must only be changed through this engine while the journal records.
+     */
+    public boolean undo() {
+        MoveJournal journal = boxGrid.getJournal();
+        if (journal == null || !journal.undo()) {
+            return false;
+        }
+        if (awaitingOpen) {
+            // the roll of the current turn
+            awaitingOpen = false;
+            restoreRolledCells(completedTurns - 1);
+        } else if (turnRolledCounts[--completedTurns] == 0) {
+            // a roll that wasted the turn
+            restoreRolledCells(completedTurns - 1);
+        } else {
+            // the open of the last turn
+            awaitingOpen = true;
+            restoreRolledCells(completedTurns);
+        }
+        return true;
+    }
+
+    /**
+     * Plays the last stage taken back by undo() again. Returns false if there is
+     * none; playing a new stage after an undo drops the stages that could be redone.
+     */
+    public boolean redo() {
+        MoveJournal journal = boxGrid.getJournal();
+        if (journal == null || !journal.redo()) {
+            return false;
+        }
+        if (awaitingOpen) {
+            awaitingOpen = false;
+            completedTurns++;
+        } else {
+            restoreRolledCells(completedTurns);
+            if (turnRolledCounts[completedTurns] == 0) {
+                completedTurns++;
+            } else {
+                awaitingOpen = true;
+            }
+        }
+        return true;
+    }
+
+    // the rolled boxes as they were right after the given turn's roll (none before the first turn)
+    private void restoreRolledCells(int turn) {
+        movedBoxes.clear();
+        int rolledCount = turn >= 0 ? turnRolledCounts[turn] : 0;
+        for (int i = 0; i < rolledCount; i++) {
+            rolledCells[i] = turnRolledCells[turn][i];
+            movedBoxes.set(bitIndex(Cell.row(rolledCells[i]), Cell.col(rolledCells[i])));
+        }
+    }
+
+    private int bitIndex(int row, int col) {
+        return row * boxGrid.getColumnCount() + col;
+    }
+}
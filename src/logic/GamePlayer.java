@@ -0,0 +1,33 @@
+package logic;
+
+import enums.Direction;
+import tools.SpecialTool;
+
+import java.util.SplittableRandom;
+
+/**
+ * GamePlayer
+ *
+ * Makes the three choices of a turn for a simulated game: the roll, the rolled
+ * box to open and, if that box holds a tool, where to use it. The simulator asks
+ * in that order and plays each choice on the GameEngine before asking the next.
+ *
+ * A player may keep scratch state; MonteCarloSimulator creates one player per
+ * worker, so no player is used by two threads at once.
+ */
+public interface GamePlayer {
+
+    /**
+     * The edge box to roll. chooseDirection is asked right after for the same box.
+     */
+    int chooseRollCell(GameEngine engine, SplittableRandom random);
+
+    Direction chooseDirection(GameEngine engine, int rollCell, SplittableRandom random);
+
+    /**
+     * One of the boxes rolled this turn (see GameEngine.getRolledCell).
+     */
+    int chooseOpenCell(GameEngine engine, RollResult roll, SplittableRandom random);
+
+    int chooseToolTarget(GameEngine engine, SpecialTool tool, SplittableRandom random);
+}
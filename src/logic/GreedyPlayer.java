@@ -0,0 +1,66 @@
+package logic;
+
+import data.repository.BoxGrid;
+import data.repository.Cell;
+import data.repository.CellState;
+import enums.Direction;
+import tools.SpecialTool;
+
+import java.util.SplittableRandom;
+
+/**
+ * GreedyPlayer
+ *
+ * A bot that knows the contents of every box and looks one turn ahead: it rolls
+ * the edge with the best MoveGenerator pre-score, opens a rolled box that holds
+ * a tool, and uses the tool where it adds the most target letters right away.
+ */
+public class GreedyPlayer implements GamePlayer {
+
+    private long[] moves = new long[0];
+    private long chosenMove;
+
+    @Override
+    public int chooseRollCell(GameEngine engine, SplittableRandom random) {
+        BoxGrid grid = engine.getGrid();
+        if (moves.length < MoveGenerator.maxRollCount(grid)) {
+            moves = new long[MoveGenerator.maxRollCount(grid)];
+        }
+        int moveCount = MoveGenerator.generateRolls(grid, engine.getTargetLetter(), moves);
+        if (moveCount == 0) {
+            // every edge box is fixed, any of them wastes the turn
+            chosenMove = -1;
+            return Cell.of(0, 0);
+        }
+        chosenMove = moves[0];
+        for (int i = 1; i < moveCount; i++) {
+            if (MoveGenerator.preScore(moves[i]) > MoveGenerator.preScore(chosenMove)) {
+                chosenMove = moves[i];
+            }
+        }
+        return MoveGenerator.cell(chosenMove);
+    }
+
+    @Override
+    public Direction chooseDirection(GameEngine engine, int rollCell, SplittableRandom random) {
+        return chosenMove == -1 ? engine.inwardDirection(rollCell) : MoveGenerator.direction(chosenMove);
+    }
+
+    @Override
+    public int chooseOpenCell(GameEngine engine, RollResult roll, SplittableRandom random) {
+        int openCell = engine.getRolledCell(0);
+        for (int i = 0; i < roll.getRolledCount(); i++) {
+            int cell = engine.getRolledCell(i);
+            if (engine.getGrid().hasTool(Cell.row(cell), Cell.col(cell))) {
+                openCell = cell;
+                break;
+            }
+        }
+        return openCell;
+    }
+
+    @Override
+    public int chooseToolTarget(GameEngine engine, SpecialTool tool, SplittableRandom random) {
+        return ToolTargets.target(ToolTargets.best(engine.getGrid(), CellState.toolKindOf(tool), engine.getTargetLetter()));
+    }
+}
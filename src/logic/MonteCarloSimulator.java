@@ -0,0 +1,132 @@
+package logic;
+
+import data.factory.BoxFactory;
+import data.repository.BoxGrid;
+import data.repository.Cell;
+import data.repository.CellState;
+import enums.Direction;
+import enums.Letter;
+import enums.TurnOutcome;
+import tools.SpecialTool;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * MonteCarloSimulator
+ *
+ * Plays many complete games on fresh random boards with GameEngine and sums them
+ * up in a SimulationSummary, for example to see how board generation changes
+ * scores and wasted turns.
+ *
+ * The games are split into batches that run as ForkJoin tasks. Every batch has
+ * its own player, random generator, boards and summary, so workers share nothing
+ * while playing; the batch summaries are merged on the way back up. The run
+ * starts from new SplittableRandom(seed), and a task that hands half of its
+ * batches to a new task gives it random.split(). The tasks only depend on the
+ * game count, so every batch gets its own independent generator, the same one
+ * for the same seed however the work is scheduled. A batch draws its boards
+ * (with BoxFactory.createBoard), target letters and the players' choices from it.
+ */
+public class MonteCarloSimulator {
+
+    private static final int BATCH_SIZE = 256;
+    private static final Letter[] LETTERS = Letter.values();
+
+    private final int rowCount;
+    private final int columnCount;
+    private final ForkJoinPool pool;
+
+    public MonteCarloSimulator(int rowCount, int columnCount, ForkJoinPool pool) {
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.pool = pool;
+    }
+
+    /**
+     * Plays gameCount games, each with a random target letter. players is called
+     * once per batch, so a player never runs on two threads at once.
+     */
+    public SimulationSummary run(long gameCount, long seed, Supplier<? extends GamePlayer> players) {
+        if (gameCount < 0) {
+            throw new IllegalArgumentException("Game count cannot be negative: " + gameCount);
+        }
+        long batchCount = (gameCount + BATCH_SIZE - 1) / BATCH_SIZE;
+        return pool.invoke(new BatchTask(0, batchCount, gameCount, new SplittableRandom(seed), players));
+    }
+
+    private void playBatch(long batch, long gameCount, SplittableRandom random, GamePlayer player, SimulationSummary summary) {
+        long firstGame = batch * BATCH_SIZE;
+        long lastGame = Math.min(gameCount, firstGame + BATCH_SIZE);
+        for (long game = firstGame; game < lastGame; game++) {
+            Letter targetLetter = LETTERS[random.nextInt(LETTERS.length)];
+            GameEngine engine = new GameEngine(BoxFactory.createBoard(random, rowCount, columnCount), targetLetter);
+            while (!engine.isOver()) {
+                playTurn(engine, player, random, summary);
+            }
+            summary.recordGame(targetLetter, engine.getScore());
+        }
+    }
+
+    private static void playTurn(GameEngine engine, GamePlayer player, SplittableRandom random, SimulationSummary summary) {
+        int rollCell = player.chooseRollCell(engine, random);
+        Direction direction = player.chooseDirection(engine, rollCell, random);
+        RollResult roll = engine.roll(rollCell, direction);
+        if (roll.getOutcome() != TurnOutcome.ROLLED) {
+            summary.recordTurn(roll.getOutcome());
+            return;
+        }
+
+        BoxGrid grid = engine.getGrid();
+        int openCell = player.chooseOpenCell(engine, roll, random);
+        SpecialTool tool = grid.getTool(Cell.row(openCell), Cell.col(openCell));
+        int toolTarget = tool == null ? Cell.NONE : player.chooseToolTarget(engine, tool, random);
+        OpenResult opened = engine.open(openCell, toolTarget);
+        summary.recordTurn(opened.getOutcome());
+        if (opened.getTool() != null) {
+            summary.recordTool(CellState.toolKindOf(opened.getTool()), opened.getOutcome());
+        }
+    }
+
+    /**
+     * Plays batches [first, last): one batch directly, more by splitting in half.
+     */
+    private final class BatchTask extends RecursiveTask<SimulationSummary> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long first;
+        private final long last;
+        private final long gameCount;
+        private final SplittableRandom random;
+        private final Supplier<? extends GamePlayer> players;
+
+        BatchTask(long first, long last, long gameCount, SplittableRandom random, Supplier<? extends GamePlayer> players) {
+            this.first = first;
+            this.last = last;
+            this.gameCount = gameCount;
+            this.random = random;
+            this.players = players;
+        }
+
+        @Override
+        protected SimulationSummary compute() {
+            if (last - first > 1) {
+                long middle = (first + last) >>> 1;
+                BatchTask right = new BatchTask(middle, last, gameCount, random.split(), players);
+                right.fork();
+                SimulationSummary summary = new BatchTask(first, middle, gameCount, random, players).compute();
+                summary.merge(right.join());
+                return summary;
+            }
+            SimulationSummary summary = new SimulationSummary(rowCount * columnCount);
+            if (first < last) {
+                GamePlayer player = players.get();
+                playBatch(first, gameCount, random, player, summary);
+            }
+            return summary;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package logic;
+
+import data.repository.Cell;
+import enums.Direction;
+
+/**
+ * Move
+ *
+ * One full turn as chosen by a solver: the edge box to roll and its direction,
+ * the rolled box to open and where to use the tool found in it. Cells are packed
+ * Cell ints; openCell is Cell.NONE when the roll was wasted on a FixedBox, and
+ * toolTarget is Cell.NONE when the opened box is empty.
+ */
+public final class Move {
+
+    private final int rollCell;
+    private final Direction direction;
+    private final int openCell;
+    private final int toolTarget;
+
+    public Move(int rollCell, Direction direction, int openCell, int toolTarget) {
+        this.rollCell = rollCell;
+        this.direction = direction;
+        this.openCell = openCell;
+        this.toolTarget = toolTarget;
+    }
+
+    public int getRollCell() {
+        return rollCell;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public int getOpenCell() {
+        return openCell;
+    }
+
+    public int getToolTarget() {
+        return toolTarget;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append("roll ").append(Cell.toString(rollCell)).append(' ').append(direction);
+        if (openCell != Cell.NONE) {
+            text.append(", open ").append(Cell.toString(openCell));
+        }
+        if (toolTarget != Cell.NONE) {
+            text.append(", use tool on ").append(Cell.toString(toolTarget));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,114 @@
+package logic;
+
+import data.models.PackedFaces;
+import data.repository.BoxGrid;
+import data.repository.Cell;
+import enums.Direction;
+import enums.Letter;
+
+import java.util.Arrays;
+
+/**
+ * MoveGenerator
+ *
+ * Lists every roll that can start a turn: each edge box rolled inward, and each
+ * corner box rolled along its row or along its column. Rolls that start on a
+ * FixedBox are left out, since they only waste the turn and leave the grid as it
+ * was; if no roll is left, every choice wastes the turn.
+ *
+ * Moves are written into a caller-owned long[] so searches can reuse one buffer
+ * per depth. Each move packs the start cell, the direction and a pre-score: how
+ * many target letters the roll itself adds to the top faces (negative if it
+ * removes more than it adds). Opening and tools are not part of the pre-score.
+ */
+public final class MoveGenerator {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int DIRECTION_SHIFT = 32;
+    private static final int SCORE_SHIFT = 34;
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Room needed in the buffer for any state of the grid.
+     */
+    public static int maxRollCount(BoxGrid grid) {
+        int rows = grid.getRowCount();
+        int columns = grid.getColumnCount();
+        int edgeCells = rows == 1 || columns == 1 ? rows * columns : 2 * (rows + columns) - 4;
+        // the four corners have two directions each
+        return edgeCells + Math.min(edgeCells, 4);
+    }
+
+    /**
+     * Writes every legal roll into moves (see maxRollCount for its size) and
+     * returns how many there are.
+     */
+    public static int generateRolls(BoxGrid grid, Letter targetLetter, long[] moves) {
+        int rows = grid.getRowCount();
+        int columns = grid.getColumnCount();
+        int count = 0;
+        for (int rowIndex = 0; rowIndex < rows; rowIndex++) {
+            // inner rows only have their two end cells on the edge
+            int colStep = rowIndex == 0 || rowIndex == rows - 1 ? 1 : Math.max(1, columns - 1);
+            for (int colIndex = 0; colIndex < columns; colIndex += colStep) {
+                if (!grid.canRoll(rowIndex, colIndex)) {
+                    continue;
+                }
+                if (grid.isCorner(rowIndex, colIndex)) {
+                    moves[count++] = move(grid, targetLetter, rowIndex, colIndex, GameEngine.horizontalInward(colIndex));
+                    moves[count++] = move(grid, targetLetter, rowIndex, colIndex, GameEngine.verticalInward(rowIndex));
+                } else {
+                    moves[count++] = move(grid, targetLetter, rowIndex, colIndex,
+                            GameEngine.inwardDirection(grid, rowIndex, colIndex));
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Sorts the first count moves so that the highest pre-score comes first.
+     */
+    public static void sortByPreScore(long[] moves, int count) {
+        // the pre-score sits in the top bits, so sorting the longs sorts by it
+        Arrays.sort(moves, 0, count);
+        for (int i = 0, j = count - 1; i < j; i++, j--) {
+            long swap = moves[i];
+            moves[i] = moves[j];
+            moves[j] = swap;
+        }
+    }
+
+    public static int cell(long move) {
+        return (int) move;
+    }
+
+    public static Direction direction(long move) {
+        return DIRECTIONS[(int) (move >>> DIRECTION_SHIFT) & 0b11];
+    }
+
+    public static int preScore(long move) {
+        return (int) (move >> SCORE_SHIFT);
+    }
+
+    private static long move(BoxGrid grid, Letter targetLetter, int rowIndex, int colIndex, Direction direction) {
+        int dRow = direction == Direction.UP ? -1 : direction == Direction.DOWN ? 1 : 0;
+        int dCol = direction == Direction.LEFT ? -1 : direction == Direction.RIGHT ? 1 : 0;
+        int runLength = grid.dominoRunLength(rowIndex, colIndex, direction);
+        int preScore = 0;
+        for (int i = 0; i < runLength; i++) {
+            int packed = grid.getPackedFaces(rowIndex + i * dRow, colIndex + i * dCol);
+            if (PackedFaces.face(PackedFaces.roll(packed, direction), PackedFaces.TOP) == targetLetter) {
+                preScore++;
+            }
+            if (PackedFaces.face(packed, PackedFaces.TOP) == targetLetter) {
+                preScore--;
+            }
+        }
+        return ((long) preScore << SCORE_SHIFT)
+                | ((long) direction.ordinal() << DIRECTION_SHIFT)
+                | (Cell.of(rowIndex, colIndex) & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,39 @@
+package logic;
+
+import enums.TurnOutcome;
+import tools.SpecialTool;
+
+/**
+ * OpenResult
+ *
+ * What happened in the second stage of a turn: WASTED_EMPTY, TOOL_APPLIED or
+ * TOOL_REJECTED, the tool found in the opened box (null if there was none) and
+ * the cell it was used on.
+ */
+public final class OpenResult {
+
+    private final TurnOutcome outcome;
+    private final SpecialTool tool;
+    private final int toolTarget;
+
+    OpenResult(TurnOutcome outcome, SpecialTool tool, int toolTarget) {
+        this.outcome = outcome;
+        this.tool = tool;
+        this.toolTarget = toolTarget;
+    }
+
+    public TurnOutcome getOutcome() {
+        return outcome;
+    }
+
+    public SpecialTool getTool() {
+        return tool;
+    }
+
+    /**
+     * The packed Cell the tool was used on, or Cell.NONE if no tool was found.
+     */
+    public int getToolTarget() {
+        return toolTarget;
+    }
+}
@@ -0,0 +1,52 @@
+package logic;
+
+import data.repository.BoxGrid;
+import data.repository.Cell;
+import enums.Direction;
+import tools.SpecialTool;
+
+import java.util.SplittableRandom;
+
+/**
+ * RandomPlayer
+ *
+ * Plays like someone who does not look at the board: any edge box (FixedBoxes
+ * included), either direction at a corner, any rolled box and any tool target.
+ */
+public class RandomPlayer implements GamePlayer {
+
+    @Override
+    public int chooseRollCell(GameEngine engine, SplittableRandom random) {
+        BoxGrid grid = engine.getGrid();
+        while (true) {
+            int row = random.nextInt(grid.getRowCount());
+            int col = random.nextInt(grid.getColumnCount());
+            if (grid.isEdge(row, col)) {
+                return Cell.of(row, col);
+            }
+        }
+    }
+
+    @Override
+    public Direction chooseDirection(GameEngine engine, int rollCell, SplittableRandom random) {
+        Direction inward = engine.inwardDirection(rollCell);
+        if (!engine.getGrid().isCorner(Cell.row(rollCell), Cell.col(rollCell)) || random.nextBoolean()) {
+            return inward;
+        }
+        // the other inward direction of the corner
+        return GameEngine.verticalInward(Cell.row(rollCell)) == inward
+                ? GameEngine.horizontalInward(Cell.col(rollCell))
+                : GameEngine.verticalInward(Cell.row(rollCell));
+    }
+
+    @Override
+    public int chooseOpenCell(GameEngine engine, RollResult roll, SplittableRandom random) {
+        return engine.getRolledCell(random.nextInt(roll.getRolledCount()));
+    }
+
+    @Override
+    public int chooseToolTarget(GameEngine engine, SpecialTool tool, SplittableRandom random) {
+        BoxGrid grid = engine.getGrid();
+        return Cell.of(random.nextInt(grid.getRowCount()), random.nextInt(grid.getColumnCount()));
+    }
+}
@@ -0,0 +1,45 @@
+package logic;
+
+import enums.Direction;
+import enums.TurnOutcome;
+
+/**
+ * RollResult
+ *
+ * What happened in the first stage of a turn: ROLLED or WASTED_FIXED, how many
+ * boxes were rolled and, if the domino effect was stopped by a FixedBox, where.
+ */
+public final class RollResult {
+
+    private final TurnOutcome outcome;
+    private final Direction direction;
+    private final int rolledCount;
+    private final int stoppedAt;
+
+    RollResult(TurnOutcome outcome, Direction direction, int rolledCount, int stoppedAt) {
+        this.outcome = outcome;
+        this.direction = direction;
+        this.rolledCount = rolledCount;
+        this.stoppedAt = stoppedAt;
+    }
+
+    public TurnOutcome getOutcome() {
+        return outcome;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public int getRolledCount() {
+        return rolledCount;
+    }
+
+    /**
+     * The FixedBox that stopped the domino effect as a packed Cell,
+     * or Cell.NONE if the roll ran to the edge of the grid.
+     */
+    public int getStoppedAt() {
+        return stoppedAt;
+    }
+}
@@ -0,0 +1,200 @@
+package logic;
+
+import data.repository.CellState;
+import enums.Letter;
+import enums.TurnOutcome;
+
+import java.util.Arrays;
+
+/**
+ * SimulationSummary
+ *
+ * Running totals over simulated games: the final score distribution, how turns
+ * ended, which tools were found and how often they were rejected, and the
+ * scores per target letter. Memory does not grow with the number of games.
+ * Summaries of disjoint game sets are combined with merge(...), which is how
+ * each simulator worker hands in its part.
+ */
+public final class SimulationSummary {
+
+    private static final int TOOL_KINDS = CellState.TOOL_FIXER + 1;
+
+    // scoreCounts[s] = games that ended with s target letters on top
+    private long[] scoreCounts;
+    private long games;
+    private long scoreSum;
+    private long scoreSquareSum;
+
+    private final long[] outcomeCounts = new long[TurnOutcome.values().length];
+    // indexed by CellState tool kind
+    private final long[] toolsFound = new long[TOOL_KINDS];
+    private final long[] toolsRejected = new long[TOOL_KINDS];
+
+    private final long[] gamesPerLetter = new long[Letter.values().length];
+    private final long[] scoreSumPerLetter = new long[Letter.values().length];
+
+    public SimulationSummary(int cellCount) {
+        this.scoreCounts = new long[cellCount + 1];
+    }
+
+    void recordTurn(TurnOutcome outcome) {
+        outcomeCounts[outcome.ordinal()]++;
+    }
+
+    void recordTool(byte toolKind, TurnOutcome outcome) {
+        toolsFound[toolKind]++;
+        if (outcome == TurnOutcome.TOOL_REJECTED) {
+            toolsRejected[toolKind]++;
+        }
+    }
+
+    void recordGame(Letter targetLetter, int score) {
+        if (score >= scoreCounts.length) {
+            scoreCounts = Arrays.copyOf(scoreCounts, score + 1);
+        }
+        scoreCounts[score]++;
+        games++;
+        scoreSum += score;
+        scoreSquareSum += (long) score * score;
+        gamesPerLetter[targetLetter.ordinal()]++;
+        scoreSumPerLetter[targetLetter.ordinal()] += score;
+    }
+
+    /**
+     * Adds the totals of another summary to this one.
+     */
+    public void merge(SimulationSummary other) {
+        if (other.scoreCounts.length > scoreCounts.length) {
+            scoreCounts = Arrays.copyOf(scoreCounts, other.scoreCounts.length);
+        }
+        for (int score = 0; score < other.scoreCounts.length; score++) {
+            scoreCounts[score] += other.scoreCounts[score];
+        }
+        games += other.games;
+        scoreSum += other.scoreSum;
+        scoreSquareSum += other.scoreSquareSum;
+        for (int i = 0; i < outcomeCounts.length; i++) {
+            outcomeCounts[i] += other.outcomeCounts[i];
+        }
+        for (int i = 0; i < TOOL_KINDS; i++) {
+            toolsFound[i] += other.toolsFound[i];
+            toolsRejected[i] += other.toolsRejected[i];
+        }
+        for (int i = 0; i < gamesPerLetter.length; i++) {
+            gamesPerLetter[i] += other.gamesPerLetter[i];
+            scoreSumPerLetter[i] += other.scoreSumPerLetter[i];
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Results
+    // ---------------------------------------------------------
+
+    public long getGameCount() {
+        return games;
+    }
+
+    public double getMeanScore() {
+        return games == 0 ? 0 : (double) scoreSum / games;
+    }
+
+    public double getScoreStandardDeviation() {
+        if (games == 0) {
+            return 0;
+        }
+        double mean = getMeanScore();
+        return Math.sqrt(Math.max(0, (double) scoreSquareSum / games - mean * mean));
+    }
+
+    /**
+     * Number of games that ended with the given score.
+     */
+    public long getScoreCount(int score) {
+        return score < scoreCounts.length ? scoreCounts[score] : 0;
+    }
+
+    public int getMaxScore() {
+        for (int score = scoreCounts.length - 1; score >= 0; score--) {
+            if (scoreCounts[score] > 0) {
+                return score;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * The smallest score that at least the given fraction of games did not exceed.
+     */
+    public int getScorePercentile(double fraction) {
+        long needed = (long) Math.ceil(fraction * games);
+        long seen = 0;
+        for (int score = 0; score < scoreCounts.length; score++) {
+            seen += scoreCounts[score];
+            if (seen >= needed && seen > 0) {
+                return score;
+            }
+        }
+        return getMaxScore();
+    }
+
+    public long getTurnCount(TurnOutcome outcome) {
+        return outcomeCounts[outcome.ordinal()];
+    }
+
+    /**
+     * Share of all turns that were wasted (FixedBox rolls, empty boxes, rejected tools).
+     */
+    public double getWastedTurnRate() {
+        long turns = 0;
+        long wasted = 0;
+        for (TurnOutcome outcome : TurnOutcome.values()) {
+            turns += outcomeCounts[outcome.ordinal()];
+            if (outcome.isWasted()) {
+                wasted += outcomeCounts[outcome.ordinal()];
+            }
+        }
+        return turns == 0 ? 0 : (double) wasted / turns;
+    }
+
+    /**
+     * How many tools of the kind (a CellState tool code) were found in opened boxes.
+     */
+    public long getToolsFound(byte toolKind) {
+        return toolsFound[toolKind];
+    }
+
+    public long getToolsRejected(byte toolKind) {
+        return toolsRejected[toolKind];
+    }
+
+    public double getMeanScore(Letter targetLetter) {
+        long letterGames = gamesPerLetter[targetLetter.ordinal()];
+        return letterGames == 0 ? 0 : (double) scoreSumPerLetter[targetLetter.ordinal()] / letterGames;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Games: %d, mean score %.2f (sd %.2f), median %d, max %d%n",
+                games, getMeanScore(), getScoreStandardDeviation(), getScorePercentile(0.5), getMaxScore()));
+        report.append(String.format("Wasted turns: %.1f%%", 100 * getWastedTurnRate()));
+        for (TurnOutcome outcome : TurnOutcome.values()) {
+            // a turn never ends with just the roll
+            if (outcome == TurnOutcome.ROLLED) {
+                continue;
+            }
+            report.append(", ").append(outcome).append(' ').append(outcomeCounts[outcome.ordinal()]);
+        }
+        report.append(System.lineSeparator()).append("Tools found (rejected):");
+        for (byte toolKind = 1; toolKind < TOOL_KINDS; toolKind++) {
+            report.append(' ').append(CellState.toolOf(toolKind).getToolName())
+                    .append(' ').append(toolsFound[toolKind])
+                    .append(" (").append(toolsRejected[toolKind]).append(')');
+        }
+        report.append(System.lineSeparator()).append("Mean score per target letter:");
+        for (Letter letter : Letter.values()) {
+            report.append(String.format(" %s %.2f", letter, getMeanScore(letter)));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,43 @@
+package logic;
+
+import java.util.List;
+
+/**
+ * SolverResult
+ *
+ * The best move sequence a solver found, its final target letter count, how many
+ * positions were searched and whether the search finished or hit its time budget.
+ */
+public final class SolverResult {
+
+    private final int score;
+    private final List<Move> moves;
+    private final long searchedNodes;
+    private final boolean complete;
+
+    SolverResult(int score, List<Move> moves, long searchedNodes, boolean complete) {
+        this.score = score;
+        this.moves = List.copyOf(moves);
+        this.searchedNodes = searchedNodes;
+        this.complete = complete;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public List<Move> getMoves() {
+        return moves;
+    }
+
+    public long getSearchedNodes() {
+        return searchedNodes;
+    }
+
+    /**
+     * False if the time budget ran out; the moves are then the best found so far.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+}
@@ -0,0 +1,183 @@
+package logic;
+
+import data.models.PackedFaces;
+import data.repository.BitBoardGrid;
+import data.repository.BoxGrid;
+import data.repository.Cell;
+import data.repository.CellState;
+import enums.Letter;
+
+/**
+ * ToolTargets
+ *
+ * Finds the target with the best immediate gain for a tool, counted straight
+ * from the top faces the tool would change instead of playing it on a copy of
+ * the grid. Taking the tool out of the opened box does not change any top face,
+ * so the grid can be read as it is before or after that.
+ *
+ * A flipper or fixer aimed at a FixedBox is rejected and leaves the grid as it
+ * is, which is a legal play with a gain of 0, so a flipper only loses a letter
+ * when there is no FixedBox to waste it on. A fix never changes the score, so it
+ * goes to the first box that can be fixed.
+ *
+ * On a BitBoardGrid the stamps and the fixer are worked out with mask operations.
+ *
+ * The result is packed in a long: the target cell in the low 32 bits and the
+ * gain in the high 32 bits, read back with target(...) and gain(...).
+ */
+final class ToolTargets {
+
+    private ToolTargets() {
+    }
+
+    static int target(long best) {
+        return (int) best;
+    }
+
+    static int gain(long best) {
+        return (int) (best >> 32);
+    }
+
+    /**
+     * The best target for a tool of the given kind (a CellState tool code).
+     * Ties go to the first target in row-major order.
+     */
+    static long best(BoxGrid grid, byte toolKind, Letter targetLetter) {
+        if (grid instanceof BitBoardGrid && toolKind != CellState.TOOL_FLIPPER) {
+            return bestOnBitboard((BitBoardGrid) grid, toolKind, targetLetter);
+        }
+        switch (toolKind) {
+            case CellState.TOOL_MASS_ROW:
+            case CellState.TOOL_MASS_COLUMN:
+                return bestLine(grid, toolKind == CellState.TOOL_MASS_ROW, targetLetter);
+            case CellState.TOOL_PLUS_SHAPE:
+                return bestPlus(grid, targetLetter);
+            case CellState.TOOL_FLIPPER:
+                return bestFlip(grid, targetLetter);
+            default:
+                return bestFix(grid);
+        }
+    }
+
+    // the stamps and the fixer as mask operations, with the same ties as below
+    private static long bestOnBitboard(BitBoardGrid grid, byte toolKind, Letter targetLetter) {
+        long fixed = grid.getFixedMask();
+        if (toolKind == CellState.TOOL_FIXER) {
+            return pack(fixed == -1L ? Cell.of(0, 0) : cellOfBit(Long.numberOfTrailingZeros(~fixed)), 0);
+        }
+        long stampable = ~fixed & ~grid.getUnchangingMask() & ~grid.getTopLetterMask(targetLetter);
+        int bestTarget = Cell.NONE;
+        int bestGain = Integer.MIN_VALUE;
+        for (int i = 0; i < BoxGrid.DEFAULT_SIZE * BoxGrid.DEFAULT_SIZE; i++) {
+            int row = i / BoxGrid.DEFAULT_SIZE;
+            int col = i % BoxGrid.DEFAULT_SIZE;
+            long area;
+            if (toolKind == CellState.TOOL_PLUS_SHAPE) {
+                area = BitBoardGrid.plusMask(row, col);
+            } else if (toolKind == CellState.TOOL_MASS_ROW && col == 0) {
+                area = BitBoardGrid.rowMask(row);
+            } else if (toolKind == CellState.TOOL_MASS_COLUMN && row == 0) {
+                area = BitBoardGrid.columnMask(col);
+            } else {
+                continue;
+            }
+            int gain = Long.bitCount(stampable & area);
+            if (gain > bestGain) {
+                bestGain = gain;
+                bestTarget = Cell.of(row, col);
+            }
+        }
+        return pack(bestTarget, bestGain);
+    }
+
+    private static int cellOfBit(int bit) {
+        return Cell.of(bit / BoxGrid.DEFAULT_SIZE, bit % BoxGrid.DEFAULT_SIZE);
+    }
+
+    // one target per row or column is enough for the mass stamps
+    private static long bestLine(BoxGrid grid, boolean rows, Letter targetLetter) {
+        int lineCount = rows ? grid.getRowCount() : grid.getColumnCount();
+        int lineLength = rows ? grid.getColumnCount() : grid.getRowCount();
+        int bestTarget = Cell.NONE;
+        int bestGain = Integer.MIN_VALUE;
+        for (int line = 0; line < lineCount; line++) {
+            int gain = 0;
+            for (int k = 0; k < lineLength; k++) {
+                gain += rows ? stampGain(grid, line, k, targetLetter) : stampGain(grid, k, line, targetLetter);
+            }
+            if (gain > bestGain) {
+                bestGain = gain;
+                bestTarget = rows ? Cell.of(line, 0) : Cell.of(0, line);
+            }
+        }
+        return pack(bestTarget, bestGain);
+    }
+
+    private static long bestPlus(BoxGrid grid, Letter targetLetter) {
+        int rowCount = grid.getRowCount();
+        int columnCount = grid.getColumnCount();
+        int bestTarget = Cell.NONE;
+        int bestGain = Integer.MIN_VALUE;
+        for (int row = 0; row < rowCount; row++) {
+            for (int col = 0; col < columnCount; col++) {
+                int gain = stampGain(grid, row, col, targetLetter)
+                        + (row > 0 ? stampGain(grid, row - 1, col, targetLetter) : 0)
+                        + (row < rowCount - 1 ? stampGain(grid, row + 1, col, targetLetter) : 0)
+                        + (col > 0 ? stampGain(grid, row, col - 1, targetLetter) : 0)
+                        + (col < columnCount - 1 ? stampGain(grid, row, col + 1, targetLetter) : 0);
+                if (gain > bestGain) {
+                    bestGain = gain;
+                    bestTarget = Cell.of(row, col);
+                }
+            }
+        }
+        return pack(bestTarget, bestGain);
+    }
+
+    private static long bestFlip(BoxGrid grid, Letter targetLetter) {
+        int bestTarget = Cell.NONE;
+        int bestGain = Integer.MIN_VALUE;
+        int fixedCell = Cell.NONE;
+        for (int row = 0; row < grid.getRowCount(); row++) {
+            for (int col = 0; col < grid.getColumnCount(); col++) {
+                if (grid.isFixed(row, col)) {
+                    if (fixedCell == Cell.NONE) {
+                        fixedCell = Cell.of(row, col);
+                    }
+                    continue;
+                }
+                Letter bottom = PackedFaces.face(grid.getPackedFaces(row, col), PackedFaces.BOTTOM);
+                int gain = (bottom == targetLetter ? 1 : 0) - (grid.getTopFace(row, col) == targetLetter ? 1 : 0);
+                if (gain > bestGain) {
+                    bestGain = gain;
+                    bestTarget = Cell.of(row, col);
+                }
+            }
+        }
+        if (fixedCell != Cell.NONE && bestGain < 0) {
+            return pack(fixedCell, 0);
+        }
+        return pack(bestTarget, bestGain);
+    }
+
+    private static long bestFix(BoxGrid grid) {
+        for (int row = 0; row < grid.getRowCount(); row++) {
+            for (int col = 0; col < grid.getColumnCount(); col++) {
+                if (!grid.isFixed(row, col)) {
+                    return pack(Cell.of(row, col), 0);
+                }
+            }
+        }
+        // with nothing left to fix, the tool is wasted on the first box
+        return pack(Cell.of(0, 0), 0);
+    }
+
+    // 1 if stamping the box would turn its top face into the target letter
+    private static int stampGain(BoxGrid grid, int row, int col, Letter targetLetter) {
+        return grid.getBoxTypeMarker(row, col) == 'R' && grid.getTopFace(row, col) != targetLetter ? 1 : 0;
+    }
+
+    private static long pack(int target, int gain) {
+        return (long) gain << 32 | (target & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,76 @@
+package logic;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * TranspositionTable
+ *
+ * Fixed-size table of search results keyed by a 64-bit position hash, shared by
+ * all search threads without locks. Each entry is two longs, the data word and
+ * the key XOR the data word; a torn entry written by two threads at once fails
+ * the key check on probe and reads as a miss.
+ *
+ * Replacement: an entry for the same key is always overwritten, otherwise the
+ * entry that searched more turns ahead stays.
+ */
+public final class TranspositionTable {
+
+    public static final long MISS = -1;
+
+    private final AtomicLongArray entries;
+    private final int mask;
+
+    public TranspositionTable(int capacityBits) {
+        if (capacityBits < 1 || capacityBits > 28) {
+            throw new IllegalArgumentException("Capacity must be between 2^1 and 2^28 entries: 2^" + capacityBits);
+        }
+        this.entries = new AtomicLongArray(2 << capacityBits);
+        this.mask = (1 << capacityBits) - 1;
+    }
+
+    /**
+     * Records that the position was searched depth turns ahead with the given value.
+     */
+    public void store(long key, int depth, int value) {
+        int slot = slot(key);
+        // depth is stored plus one so that a filled entry is never all zero
+        long data = ((long) (depth + 1) << 32) | (value & 0xFFFFFFFFL);
+        long oldData = entries.get(slot + 1);
+        long oldKey = entries.get(slot) ^ oldData;
+        if (oldKey != key && oldData != 0 && depthOf(oldData) > depth) {
+            return;
+        }
+        entries.set(slot, key ^ data);
+        entries.set(slot + 1, data);
+    }
+
+    /**
+     * Returns the stored entry for the key (read it with depthOf and valueOf), or MISS.
+     */
+    public long probe(long key) {
+        int slot = slot(key);
+        long data = entries.get(slot + 1);
+        if (data == 0 || (entries.get(slot) ^ data) != key) {
+            return MISS;
+        }
+        return data;
+    }
+
+    public static int depthOf(long entry) {
+        return (int) (entry >>> 32) - 1;
+    }
+
+    public static int valueOf(long entry) {
+        return (int) entry;
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, 0);
+        }
+    }
+
+    private int slot(long key) {
+        return ((int) (key ^ (key >>> 32)) & mask) << 1;
+    }
+}
@@ -0,0 +1,77 @@
+package logic;
+
+import data.repository.Cell;
+import data.repository.CellState;
+import enums.Direction;
+import tools.SpecialTool;
+
+/**
+ * TurnPolicy
+ *
+ * The decision an expectimax search recommends for the next turn. The roll and the
+ * box to open are fixed; the tool target depends on which tool turns up, so there
+ * is one target per tool kind (indexed by CellState tool code).
+ */
+public final class TurnPolicy {
+
+    private final int rollCell;
+    private final Direction direction;
+    private final int openCell;
+    private final int[] toolTargets;
+    private final double expectedScore;
+    private final int searchedTurns;
+
+    TurnPolicy(int rollCell, Direction direction, int openCell, int[] toolTargets,
+               double expectedScore, int searchedTurns) {
+        this.rollCell = rollCell;
+        this.direction = direction;
+        this.openCell = openCell;
+        this.toolTargets = toolTargets.clone();
+        this.expectedScore = expectedScore;
+        this.searchedTurns = searchedTurns;
+    }
+
+    public int getRollCell() {
+        return rollCell;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * The box to open, or Cell.NONE if the recommended roll is wasted on a FixedBox.
+     */
+    public int getOpenCell() {
+        return openCell;
+    }
+
+    /**
+     * Where to use a tool of the given kind if the opened box holds one.
+     */
+    public int getToolTarget(byte toolKind) {
+        return toolTargets[toolKind];
+    }
+
+    /**
+     * The full move once the tool in the opened box is known (null if it is empty).
+     */
+    public Move toMove(SpecialTool foundTool) {
+        byte toolKind = CellState.toolKindOf(foundTool);
+        return new Move(rollCell, direction, openCell, toolKind == CellState.TOOL_NONE ? Cell.NONE : toolTargets[toolKind]);
+    }
+
+    /**
+     * Expected final count of the target letter when following the search.
+     */
+    public double getExpectedScore() {
+        return expectedScore;
+    }
+
+    /**
+     * How many turns ahead the search looked within its time budget.
+     */
+    public int getSearchedTurns() {
+        return searchedTurns;
+    }
+}
@@ -1,46 +1,54 @@
 package tools;
 
-import data.factory.FaceFactory;
-import data.models.Box;
 import data.models.FixedBox;
 import data.repository.BoxGrid;
+import data.repository.Cell;
+import data.repository.CellState;
 import enums.Letter;
-import exceptions.BoxAlreadyFixedException;
+import enums.TurnOutcome;
 
 /**
  * BoxFixer: Replaces a box with an identical FixedBox copy.
  * If the box has a tool inside, it is removed from the game.
- * Cannot fix a box that is already a FixedBox - throws BoxAlreadyFixedException.
+ * Cannot fix a box that is already a FixedBox - the tool is rejected.
  */
 public class BoxFixer extends SpecialTool {
 
+    public static final BoxFixer INSTANCE = new BoxFixer();
+
+    private BoxFixer() {
+    }
+
     @Override
-    public void useTool(BoxGrid grid, String location, Letter targetLetter) {
-        try {
-            int[] coords = grid.parseLocation(location);
-            int row = coords[0];
-            int col = coords[1];
+    public byte getToolKind() {
+        return CellState.TOOL_FIXER;
+    }
 
-            Box originalBox = grid.getBox(row, col);
+    @Override
+    public TurnOutcome useTool(BoxGrid grid, int cell, Letter targetLetter) {
+        int row = Cell.row(cell);
+        int col = Cell.col(cell);
 
-            // Check if already a FixedBox
-            if (originalBox instanceof FixedBox) {
-                throw new BoxAlreadyFixedException("Cannot fix a box that is already fixed! Turn wasted.");
-            }
+        // Check if already a FixedBox
+        if (grid.isFixed(row, col)) {
+            return TurnOutcome.TOOL_REJECTED;
+        }
 
-            // Create a new FixedBox with the same faces as the original box
-            FixedBox fixedBox = new FixedBox(originalBox.getBoxFaces());
+        // Create a new FixedBox with the same faces as the original box
+        FixedBox fixedBox = new FixedBox(grid.getPackedFaces(row, col));
 
-            // Replace the box in the grid
-            grid.setBox(row, col, fixedBox);
+        // Replace the box in the grid
+        grid.setBox(row, col, fixedBox);
+        return TurnOutcome.TOOL_APPLIED;
+    }
 
-            System.out.println("The box at location " + location + " has been replaced with a FixedBox.");
+    @Override
+    public String getUseMessage(int cell, Letter targetLetter) {
+        return "The box at location " + Cell.toString(cell) + " has been replaced with a FixedBox.";
+    }
 
-        } catch (BoxAlreadyFixedException e) {
-            System.out.println("TURN WASTED: " + e.getMessage());
-            throw new RuntimeException(e); // Re-throw to be caught in BoxPuzzle
-        } catch (Exception e) {
-            System.out.println("Error using BoxFixer: " + e.getMessage());
-        }
+    @Override
+    public String getRejectMessage(int cell) {
+        return "Cannot fix a box that is already fixed! Turn wasted.";
     }
-}
\ No newline at end of file
+}
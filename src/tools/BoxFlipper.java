@@ -1,42 +1,50 @@
 package tools;
 
-import data.models.Box;
-import data.models.FixedBox;
 import data.repository.BoxGrid;
+import data.repository.Cell;
+import data.repository.CellState;
 import enums.Letter;
-import exceptions.UnmovableFixedBoxException;
+import enums.TurnOutcome;
 
 /**
  * BoxFlipper: Flips a box upside down.
  * The top side becomes the bottom side and vice versa.
- * Cannot flip FixedBoxes - throws UnmovableFixedBoxException.
+ * Cannot flip FixedBoxes - the tool is rejected.
  */
 public class BoxFlipper extends SpecialTool {
 
+    public static final BoxFlipper INSTANCE = new BoxFlipper();
+
+    private BoxFlipper() {
+    }
+
     @Override
-    public void useTool(BoxGrid grid, String location, Letter targetLetter) {
-        try {
-            int[] coords = grid.parseLocation(location);
-            int row = coords[0];
-            int col = coords[1];
+    public byte getToolKind() {
+        return CellState.TOOL_FLIPPER;
+    }
 
-            Box box = grid.getBox(row, col);
+    @Override
+    public TurnOutcome useTool(BoxGrid grid, int cell, Letter targetLetter) {
+        int row = Cell.row(cell);
+        int col = Cell.col(cell);
 
-            // Check if the box is a FixedBox
-            if (box instanceof FixedBox) {
-                throw new UnmovableFixedBoxException("Cannot flip a FixedBox! Turn wasted.");
-            }
+        // Check if the box is a FixedBox
+        if (grid.isFixed(row, col)) {
+            return TurnOutcome.TOOL_REJECTED;
+        }
 
-            // Flip the box
-            box.flip();
+        // Flip the box
+        grid.flip(row, col);
+        return TurnOutcome.TOOL_APPLIED;
+    }
 
-            System.out.println("The chosen box on location " + location + " has been flipped upside down.");
+    @Override
+    public String getUseMessage(int cell, Letter targetLetter) {
+        return "The chosen box on location " + Cell.toString(cell) + " has been flipped upside down.";
+    }
 
-        } catch (UnmovableFixedBoxException e) {
-            System.out.println("TURN WASTED: " + e.getMessage());
-            throw new RuntimeException(e); // Re-throw to be caught in BoxPuzzle
-        } catch (Exception e) {
-            System.out.println("Error using BoxFlipper: " + e.getMessage());
-        }
+    @Override
+    public String getRejectMessage(int cell) {
+        return "Cannot flip a FixedBox! Turn wasted.";
     }
-}
\ No newline at end of file
+}
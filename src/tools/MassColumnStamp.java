@@ -1,33 +1,35 @@
 package tools;
 
-import data.models.Box;
 import data.repository.BoxGrid;
+import data.repository.Cell;
+import data.repository.CellState;
 import enums.Letter;
-import java.util.List;
+import enums.TurnOutcome;
 
 /**
  * MassColumnStamp: Re-stamps all boxes in an entire column to the target letter.
  */
 public class MassColumnStamp extends SpecialTool {
 
-    @Override
-    public void useTool(BoxGrid grid, String location, Letter targetLetter) {
-        try {
-            int[] coords = grid.parseLocation(location);
-            int colNumber = coords[1];
+    public static final MassColumnStamp INSTANCE = new MassColumnStamp();
 
-            // Get the entire column
-            List<Box> column = grid.getColumn(colNumber);
+    private MassColumnStamp() {
+    }
 
-            // Stamp all boxes in the column
-            for (Box box : column) {
-                box.restamp(targetLetter);
-            }
+    @Override
+    public byte getToolKind() {
+        return CellState.TOOL_MASS_COLUMN;
+    }
 
-            System.out.println("All boxes in column C" + (colNumber + 1) + " have been stamped to letter \"" + targetLetter + "\".");
+    @Override
+    public TurnOutcome useTool(BoxGrid grid, int cell, Letter targetLetter) {
+        // Stamp all boxes in the column
+        grid.restampColumn(Cell.col(cell), targetLetter);
+        return TurnOutcome.TOOL_APPLIED;
+    }
 
-        } catch (Exception e) {
-            System.out.println("Error using MassColumnStamp: " + e.getMessage());
-        }
+    @Override
+    public String getUseMessage(int cell, Letter targetLetter) {
+        return "All boxes in column C" + (Cell.col(cell) + 1) + " have been stamped to letter \"" + targetLetter + "\".";
     }
-}
\ No newline at end of file
+}
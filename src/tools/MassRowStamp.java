@@ -1,33 +1,35 @@
 package tools;
 
-import data.models.Box;
 import data.repository.BoxGrid;
+import data.repository.Cell;
+import data.repository.CellState;
 import enums.Letter;
-import java.util.List;
+import enums.TurnOutcome;
 
 /**
  * MassRowStamp: Re-stamps all boxes in an entire row to the target letter.
  */
 public class MassRowStamp extends SpecialTool {
 
-    @Override
-    public void useTool(BoxGrid grid, String location, Letter targetLetter) {
-        try {
-            int[] coords = grid.parseLocation(location);
-            int rowNumber = coords[0];
+    public static final MassRowStamp INSTANCE = new MassRowStamp();
 
-            // Get the entire row
-            List<Box> row = grid.getRow(rowNumber);
+    private MassRowStamp() {
+    }
 
-            // Stamp all boxes in the row
-            for (Box box : row) {
-                box.restamp(targetLetter);
-            }
+    @Override
+    public byte getToolKind() {
+        return CellState.TOOL_MASS_ROW;
+    }
 
-            System.out.println("All boxes in row R" + (rowNumber + 1) + " have been stamped to letter \"" + targetLetter + "\".");
+    @Override
+    public TurnOutcome useTool(BoxGrid grid, int cell, Letter targetLetter) {
+        // Stamp all boxes in the row
+        grid.restampRow(Cell.row(cell), targetLetter);
+        return TurnOutcome.TOOL_APPLIED;
+    }
 
-        } catch (Exception e) {
-            System.out.println("Error using MassRowStamp: " + e.getMessage());
-        }
+    @Override
+    public String getUseMessage(int cell, Letter targetLetter) {
+        return "All boxes in row R" + (Cell.row(cell) + 1) + " have been stamped to letter \"" + targetLetter + "\".";
     }
-}
\ No newline at end of file
+}
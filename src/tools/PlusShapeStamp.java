@@ -1,9 +1,10 @@
 package tools;
 
-import data.models.Box;
 import data.repository.BoxGrid;
+import data.repository.Cell;
+import data.repository.CellState;
 import enums.Letter;
-import java.util.List;
+import enums.TurnOutcome;
 
 /**
  * PlusShapeStamp: Re-stamps 5 boxes in a plus shape to the target letter.
@@ -11,27 +12,25 @@ import java.util.List;
  */
 public class PlusShapeStamp extends SpecialTool {
 
-    @Override
-    public void useTool(BoxGrid grid, String location, Letter targetLetter) {
-        try {
-            int[] coords = grid.parseLocation(location);
-            int row = coords[0];
-            int col = coords[1];
+    public static final PlusShapeStamp INSTANCE = new PlusShapeStamp();
 
-            // Stamp the center box
-            Box centerBox = grid.getBox(row, col);
-            centerBox.restamp(targetLetter);
+    private PlusShapeStamp() {
+    }
 
-            // Get and stamp the 4 neighbors
-            List<Box> neighbors = grid.getFourNeighbors(row, col);
-            for (Box neighbor : neighbors) {
-                neighbor.restamp(targetLetter);
-            }
+    @Override
+    public byte getToolKind() {
+        return CellState.TOOL_PLUS_SHAPE;
+    }
 
-            System.out.println("Top sides of the chosen box (" + location + ") and its surrounding boxes have been stamped to letter \"" + targetLetter + "\".");
+    @Override
+    public TurnOutcome useTool(BoxGrid grid, int cell, Letter targetLetter) {
+        // Stamp the center box and its 4 neighbors
+        grid.restampPlus(Cell.row(cell), Cell.col(cell), targetLetter);
+        return TurnOutcome.TOOL_APPLIED;
+    }
 
-        } catch (Exception e) {
-            System.out.println("Error using PlusShapeStamp: " + e.getMessage());
-        }
+    @Override
+    public String getUseMessage(int cell, Letter targetLetter) {
+        return "Top sides of the chosen box (" + Cell.toString(cell) + ") and its surrounding boxes have been stamped to letter \"" + targetLetter + "\".";
     }
-}
\ No newline at end of file
+}
@@ -1,11 +1,16 @@
 package tools;
 
 import data.repository.BoxGrid;
+import data.repository.Cell;
 import enums.Letter;
+import enums.TurnOutcome;
 
 /**
  * Abstract base class for all special tools.
- * Uses generics to allow polymorphic usage in BoxPuzzle.
+ *
+ * Tools hold no state, so every tool class has one shared INSTANCE. Boxes and
+ * grids store only the tool's CellState code and look the instance up with
+ * CellState.toolOf when the tool is used.
  */
 public abstract class SpecialTool {
 
@@ -13,10 +18,29 @@ public abstract class SpecialTool {
      * Uses the tool on the grid at the specified location with the target letter.
      *
      * grid The BoxGrid to apply the tool on
-     * location The location string (e.g., "R2-C4")
+     * cell The packed location of the target box (see Cell)
      * targetLetter The target letter to stamp boxes with
+     * Returns TOOL_APPLIED, or TOOL_REJECTED if the tool cannot be used on that box.
      */
-    public abstract void useTool(BoxGrid grid, String location, Letter targetLetter);
+    public abstract TurnOutcome useTool(BoxGrid grid, int cell, Letter targetLetter);
+
+    /**
+     * The CellState tool code of this tool.
+     */
+    public abstract byte getToolKind();
+
+    /**
+     * Describes a successful use of the tool, for the console game to print.
+     * Tools never print by themselves.
+     */
+    public abstract String getUseMessage(int cell, Letter targetLetter);
+
+    /**
+     * Explains why the tool was rejected on the given box.
+     */
+    public String getRejectMessage(int cell) {
+        return getToolName() + " cannot be used on " + Cell.toString(cell) + "! Turn wasted.";
+    }
 
     /**
      * Returns the name of the tool for display purposes.
@@ -0,0 +1,107 @@
+package data.factory;
+
+import data.models.PackedFaces;
+import data.repository.CellState;
+import enums.Letter;
+
+import java.util.SplittableRandom;
+
+/**
+ * AliasTableTest
+ *
+ * Draws many samples from alias tables and from the tool and face
+ * factories and compares the frequencies with the configured probabilities,
+ * allowing six standard deviations.
+ *
+ * Runs without a test framework:
+ *   javac -d out $(find src test -name '*.java')
+ *   java -ea -cp out data.factory.AliasTableTest
+ */
+public class AliasTableTest {
+
+    private static final int SAMPLES = 2_000_000;
+
+    public static void main(String[] args) {
+        checkTable(new AliasTable(85, 10, 5));
+        checkTable(new AliasTable(0, 1, 0, 3, 0.5, 7, 0));
+        checkTable(new AliasTable(1));
+        checkToolTables();
+        checkFaceSets();
+        System.out.println("AliasTableTest passed");
+    }
+
+    private static void checkTable(AliasTable table) {
+        long[] counts = new long[table.size()];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            counts[table.sample(random)]++;
+        }
+        for (int outcome = 0; outcome < counts.length; outcome++) {
+            checkFrequency(counts[outcome], table.probability(outcome), "outcome " + outcome);
+        }
+    }
+
+    private static void checkToolTables() {
+        long[] counts = new long[CellState.TOOL_FIXER + 1];
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < SAMPLES; i++) {
+            counts[ToolFactory.createToolKind(CellState.TYPE_REGULAR, random.nextLong())]++;
+        }
+        for (byte toolKind = 0; toolKind < counts.length; toolKind++) {
+            checkFrequency(counts[toolKind], ToolFactory.toolChance(CellState.TYPE_REGULAR, toolKind), "tool " + toolKind);
+        }
+    }
+
+    // the face sampler must match the old draw-and-reject loop, compared here by how many letters appear twice
+    private static void checkFaceSets() {
+        long[] sampled = new long[4];
+        long[] rejected = new long[4];
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < SAMPLES; i++) {
+            int packed = FaceFactory.createRandomPackedFaces(random);
+            int[] used = new int[Letter.values().length];
+            for (int face = 0; face < PackedFaces.FACE_COUNT; face++) {
+                used[PackedFaces.face(packed, face).ordinal()]++;
+            }
+            sampled[pairs(used)]++;
+
+            used = new int[used.length];
+            int faces = 0;
+            while (faces < PackedFaces.FACE_COUNT) {
+                int letter = random.nextInt(used.length);
+                if (used[letter] < FaceFactory.MAX_SAME_LETTER) {
+                    used[letter]++;
+                    faces++;
+                }
+            }
+            rejected[pairs(used)]++;
+        }
+        for (int pairs = 0; pairs < sampled.length; pairs++) {
+            checkFrequency(sampled[pairs], (double) rejected[pairs] / SAMPLES, pairs + " repeated letters");
+        }
+    }
+
+    private static int pairs(int[] used) {
+        int pairs = 0;
+        for (int count : used) {
+            check(count <= FaceFactory.MAX_SAME_LETTER, "a letter appears " + count + " times");
+            if (count == FaceFactory.MAX_SAME_LETTER) {
+                pairs++;
+            }
+        }
+        return pairs;
+    }
+
+    private static void checkFrequency(long count, double probability, String what) {
+        double expected = probability * SAMPLES;
+        double allowed = 6 * Math.sqrt(SAMPLES * probability * (1 - probability)) + 1;
+        check(Math.abs(count - expected) <= allowed,
+                what + ": drawn " + count + " times, expected about " + Math.round(expected));
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package data.repository;
+
+import data.factory.BoxFactory;
+import data.models.Box;
+import enums.Direction;
+import enums.Letter;
+import tools.SpecialTool;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * BackendEquivalenceTest
+ *
+ * Starts every BoxGrid backend from the same random 8x8 board, applies the same
+ * random sequence of mutations to all of them and compares every cell and every
+ * score query after each step. Consistency checks are on, so the maintained
+ * counters are also compared with full scans along the way.
+ *
+ * Runs without a test framework:
+ *   javac -d out $(find src test -name '*.java')
+ *   java -ea -cp out data.repository.BackendEquivalenceTest
+ */
+public class BackendEquivalenceTest {
+
+    private static final int SIDE = BoxGrid.DEFAULT_SIZE;
+    private static final Letter[] LETTERS = Letter.values();
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    public static void main(String[] args) throws Exception {
+        for (long seed = 1; seed <= 10; seed++) {
+            runSeed(seed, 1_000);
+        }
+        System.out.println("BackendEquivalenceTest passed");
+    }
+
+    private static void runSeed(long seed, int steps) throws Exception {
+        Path file = Files.createTempFile("backend-equivalence", ".grid");
+        try (MappedBoxGrid mapped = MappedBoxGrid.create(file, SIDE, SIDE, new SplittableRandom(seed))) {
+            PersistentBoxGrid persistent = new PersistentBoxGrid(SIDE, SIDE, new SplittableRandom(seed));
+            BoxGrid[] grids = {
+                    new ListBoxGrid(SIDE, SIDE, new SplittableRandom(seed)),
+                    new ArrayBoxGrid(SIDE, SIDE, new SplittableRandom(seed)),
+                    new BitBoardGrid(new SplittableRandom(seed)),
+                    mapped,
+                    persistent,
+            };
+            for (BoxGrid grid : grids) {
+                grid.setConsistencyChecks(true);
+            }
+            // a snapshot taken now must not see any of the mutations below
+            GridSnapshot start = persistent.snapshot();
+            int[] startStates = states(grids[0]);
+            compareAll(grids, "seed " + seed + " start");
+
+            SplittableRandom random = new SplittableRandom(seed * 31 + 7);
+            for (int step = 0; step < steps; step++) {
+                String action = mutate(grids, random);
+                compareAll(grids, "seed " + seed + " step " + step + " (" + action + ")");
+            }
+
+            for (int i = 0; i < startStates.length; i++) {
+                check(start.getCellState(i / SIDE, i % SIDE) == startStates[i],
+                        "seed " + seed + ": snapshot changed at cell " + i);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // applies one random mutation to every grid and names it for failure messages
+    private static String mutate(BoxGrid[] grids, SplittableRandom random) {
+        int row = random.nextInt(SIDE);
+        int col = random.nextInt(SIDE);
+        Letter letter = LETTERS[random.nextInt(LETTERS.length)];
+        Direction direction = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+        switch (random.nextInt(10)) {
+            case 0:
+                if (!grids[0].canRoll(row, col)) {
+                    return "no-op";
+                }
+                for (BoxGrid grid : grids) {
+                    grid.roll(row, col, direction);
+                }
+                return "roll " + row + "," + col + " " + direction;
+            case 1: {
+                int length = grids[0].dominoRunLength(row, col, direction);
+                for (BoxGrid grid : grids) {
+                    grid.rollRange(row, col, direction, length);
+                }
+                return "rollRange " + row + "," + col + " " + direction + " " + length;
+            }
+            case 2:
+                for (BoxGrid grid : grids) {
+                    grid.flip(row, col);
+                }
+                return "flip " + row + "," + col;
+            case 3:
+                for (BoxGrid grid : grids) {
+                    grid.restamp(row, col, letter);
+                }
+                return "restamp " + row + "," + col + " " + letter;
+            case 4:
+                for (BoxGrid grid : grids) {
+                    grid.restampRow(row, letter);
+                }
+                return "restampRow " + row + " " + letter;
+            case 5:
+                for (BoxGrid grid : grids) {
+                    grid.restampColumn(col, letter);
+                }
+                return "restampColumn " + col + " " + letter;
+            case 6:
+                for (BoxGrid grid : grids) {
+                    grid.restampPlus(row, col, letter);
+                }
+                return "restampPlus " + row + "," + col + " " + letter;
+            case 7: {
+                SpecialTool expected = grids[0].removeTool(row, col);
+                for (int g = 1; g < grids.length; g++) {
+                    check(grids[g].removeTool(row, col) == expected, name(grids[g]) + " removed a different tool");
+                }
+                return "removeTool " + row + "," + col;
+            }
+            case 8: {
+                // copy a cell from elsewhere on the board
+                int state = grids[0].getCellState(random.nextInt(SIDE), random.nextInt(SIDE));
+                for (BoxGrid grid : grids) {
+                    grid.setCellState(row, col, state);
+                }
+                return "setCellState " + row + "," + col;
+            }
+            default: {
+                // a fresh box, which can also turn the cell into a FixedBox
+                Box box = BoxFactory.createRandomBox(random);
+                for (BoxGrid grid : grids) {
+                    grid.setBox(row, col, box);
+                }
+                return "setBox " + row + "," + col;
+            }
+        }
+    }
+
+    private static void compareAll(BoxGrid[] grids, String where) {
+        BoxGrid reference = grids[0];
+        for (int g = 1; g < grids.length; g++) {
+            BoxGrid grid = grids[g];
+            String prefix = where + ", " + name(grid) + " vs " + name(reference) + ": ";
+            for (int row = 0; row < SIDE; row++) {
+                for (int col = 0; col < SIDE; col++) {
+                    String cell = prefix + "cell " + row + "," + col + " ";
+                    // backends may store the same box with a different base face set and rotation
+                    check(CellState.normalized(grid.getCellState(row, col))
+                            == CellState.normalized(reference.getCellState(row, col)), cell + "state");
+                    check(grid.getTopFace(row, col) == reference.getTopFace(row, col), cell + "top face");
+                    check(grid.getPackedFaces(row, col) == reference.getPackedFaces(row, col), cell + "faces");
+                    check(grid.getBoxTypeMarker(row, col) == reference.getBoxTypeMarker(row, col), cell + "type");
+                    check(grid.isOpened(row, col) == reference.isOpened(row, col), cell + "opened");
+                    check(grid.isEmpty(row, col) == reference.isEmpty(row, col), cell + "empty");
+                    check(grid.hasTool(row, col) == reference.hasTool(row, col), cell + "has tool");
+                    check(grid.getTool(row, col) == reference.getTool(row, col), cell + "tool");
+                }
+            }
+            check(grid.getStateHash() == reference.getStateHash(), prefix + "state hash");
+            check(grid.getCanonicalHash() == reference.getCanonicalHash(), prefix + "canonical hash");
+            for (Letter letter : LETTERS) {
+                check(grid.countTopLetter(letter) == reference.countTopLetter(letter), prefix + "count of " + letter);
+                check(grid.countTopLetterInRect(letter, 1, 2, 5, 6) == reference.countTopLetterInRect(letter, 1, 2, 5, 6),
+                        prefix + "rect count of " + letter);
+                check(grid.countTopLetterInPlus(letter, 0, 3) == reference.countTopLetterInPlus(letter, 0, 3),
+                        prefix + "plus count of " + letter);
+            }
+        }
+    }
+
+    private static int[] states(BoxGrid grid) {
+        int[] states = new int[SIDE * SIDE];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = grid.getCellState(i / SIDE, i % SIDE);
+        }
+        return states;
+    }
+
+    private static String name(BoxGrid grid) {
+        return grid.getClass().getSimpleName();
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package logic;
+
+import data.models.Box;
+import data.models.FixedBox;
+import data.models.PackedFaces;
+import data.models.RegularBox;
+import data.models.UnchangingBox;
+import data.repository.ArrayBoxGrid;
+import data.repository.BoxGrid;
+import data.repository.Cell;
+import data.repository.CellState;
+import enums.Direction;
+import enums.Letter;
+import enums.TurnOutcome;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * ExhaustiveSolverTest
+ *
+ * Compares ExhaustiveSolver with a brute force search on small boards. The
+ * brute force plays every legal turn through GameEngine (every edge roll, every
+ * rolled box, every tool target) on fresh copies, with no pruning. The solver's
+ * score must match it, and replaying the solver's moves must reach that score.
+ *
+ * The boards are drawn by the test itself, so a seed keeps giving the same board.
+ * Some of them hold only flippers and fixers among many FixedBoxes, where wasting
+ * a tool on a FixedBox is the best play.
+ *
+ * It also checks the canonical Zobrist hash the solver skips positions by:
+ * positions with equal canonical hashes must have equal solver values.
+ *
+ * Runs without a test framework:
+ *   javac -d out $(find src test -name '*.java')
+ *   java -ea -cp out logic.ExhaustiveSolverTest
+ */
+public class ExhaustiveSolverTest {
+
+    private static final Letter[] LETTERS = Letter.values();
+    private static final byte[] ALL_TOOLS = {
+            CellState.TOOL_NONE, CellState.TOOL_PLUS_SHAPE, CellState.TOOL_MASS_ROW,
+            CellState.TOOL_MASS_COLUMN, CellState.TOOL_FLIPPER, CellState.TOOL_FIXER,
+    };
+    private static final byte[] REJECTABLE_TOOLS = {CellState.TOOL_FLIPPER, CellState.TOOL_FIXER};
+
+    public static void main(String[] args) {
+        for (long seed = 1; seed <= 12; seed++) {
+            compareWithBruteForce(seed, 3, 3, 2, 5, ALL_TOOLS);
+        }
+        for (long seed = 1; seed <= 4; seed++) {
+            compareWithBruteForce(seed, 3, 4, 2, 5, ALL_TOOLS);
+            compareWithBruteForce(seed, 8, 8, 1, 5, ALL_TOOLS);
+        }
+        compareWithBruteForce(5, 4, 4, 2, 5, ALL_TOOLS);
+        // on these boards the best line wastes a tool on a FixedBox
+        for (long seed : new long[]{15, 54, 100, 151, 202, 224, 227, 248}) {
+            compareWithBruteForce(seed, 3, 3, 2, 70, REJECTABLE_TOOLS);
+        }
+        for (long seed = 1; seed <= 40; seed++) {
+            checkCanonicalHash(seed, 3);
+        }
+        checkCanonicalHash(41, 4);
+        System.out.println("ExhaustiveSolverTest passed");
+    }
+
+    private static void compareWithBruteForce(long seed, int rowCount, int columnCount, int turnCount,
+                                              int fixedPercent, byte[] toolKinds) {
+        SplittableRandom random = new SplittableRandom(seed);
+        BoxGrid grid = board(random, rowCount, columnCount, fixedPercent, toolKinds);
+        Letter targetLetter = LETTERS[random.nextInt(LETTERS.length)];
+        String where = "seed " + seed + ", " + rowCount + "x" + columnCount + ", " + turnCount + " turns: ";
+
+        int expected = bruteForce(grid, targetLetter, turnCount);
+        SolverResult result = new ExhaustiveSolver(targetLetter, turnCount, 0, ForkJoinPool.commonPool()).solve(grid);
+        check(result.isComplete(), where + "search did not complete");
+        check(result.getScore() == expected, where + "solver found " + result.getScore() + ", brute force " + expected);
+
+        ArrayBoxGrid replay = new ArrayBoxGrid(grid);
+        GameEngine engine = new GameEngine(replay, targetLetter);
+        for (Move move : result.getMoves()) {
+            engine.play(move);
+        }
+        check(replay.countTopLetter(targetLetter) == expected, where + "replaying the solver's moves does not reach its score");
+    }
+
+    /**
+     * Builds a square board, two of its symmetric images and a transposed copy
+     * whose mass stamps were not swapped (which plays differently), and checks that
+     * every pair with equal canonical hashes also has equal one-turn values.
+     */
+    private static void checkCanonicalHash(long seed, int side) {
+        SplittableRandom random = new SplittableRandom(seed);
+        BoxGrid grid = board(random, side, side, 5, ALL_TOOLS);
+        Letter targetLetter = LETTERS[random.nextInt(LETTERS.length)];
+        // plenty of mass stamps, so the unswapped copy usually differs
+        for (int i = 0; i < side; i++) {
+            int row = random.nextInt(side);
+            int col = random.nextInt(side);
+            byte toolKind = random.nextBoolean() ? CellState.TOOL_MASS_ROW : CellState.TOOL_MASS_COLUMN;
+            grid.setBox(row, col, box('R', grid.getPackedFaces(row, col), toolKind));
+        }
+
+        BoxGrid[] positions = {
+                grid,
+                image(grid, true, true),
+                image(grid, false, true),
+                image(grid, true, false),
+        };
+        ExhaustiveSolver solver = new ExhaustiveSolver(targetLetter, 1, 0, ForkJoinPool.commonPool());
+        Map<Long, Integer> values = new HashMap<>();
+        for (int p = 0; p < positions.length; p++) {
+            int value = solver.solve(positions[p]).getScore();
+            Integer earlier = values.putIfAbsent(positions[p].getCanonicalHash(), value);
+            check(earlier == null || earlier == value, "seed " + seed + ": position " + p
+                    + " has the canonical hash of a position worth " + earlier + " but is worth " + value);
+        }
+        check(positions[0].getCanonicalHash() == positions[1].getCanonicalHash(), "seed " + seed + ": transposed hash differs");
+        check(positions[0].getCanonicalHash() == positions[2].getCanonicalHash(), "seed " + seed + ": rotated hash differs");
+    }
+
+    /**
+     * The board transposed or rotated by 180 degrees, with every box turned along
+     * with it. swapStamps false leaves the mass stamps as they were.
+     */
+    private static BoxGrid image(BoxGrid grid, boolean transpose, boolean swapStamps) {
+        int side = grid.getRowCount();
+        // source[i] = face that ends up on side i
+        int[] source = transpose
+                ? new int[]{PackedFaces.TOP, PackedFaces.BOTTOM, PackedFaces.RIGHT, PackedFaces.LEFT, PackedFaces.BACK, PackedFaces.FRONT}
+                : new int[]{PackedFaces.TOP, PackedFaces.BOTTOM, PackedFaces.BACK, PackedFaces.FRONT, PackedFaces.RIGHT, PackedFaces.LEFT};
+        ArrayBoxGrid image = new ArrayBoxGrid(grid);
+        for (int row = 0; row < side; row++) {
+            for (int col = 0; col < side; col++) {
+                int faces = PackedFaces.permute(grid.getPackedFaces(row, col), source);
+                byte toolKind = CellState.toolKind(grid.getCellState(row, col));
+                if (transpose && swapStamps && toolKind == CellState.TOOL_MASS_ROW) {
+                    toolKind = CellState.TOOL_MASS_COLUMN;
+                } else if (transpose && swapStamps && toolKind == CellState.TOOL_MASS_COLUMN) {
+                    toolKind = CellState.TOOL_MASS_ROW;
+                }
+                Box moved = box(grid.getBoxTypeMarker(row, col), faces, toolKind);
+                if (transpose) {
+                    image.setBox(col, row, moved);
+                } else {
+                    image.setBox(side - 1 - row, side - 1 - col, moved);
+                }
+            }
+        }
+        return image;
+    }
+
+    /**
+     * A board of random faces where fixedPercent of the boxes are FixedBoxes, one in
+     * ten is an UnchangingBox and every other box holds one of toolKinds.
+     */
+    private static BoxGrid board(SplittableRandom random, int rowCount, int columnCount, int fixedPercent, byte[] toolKinds) {
+        BoxGrid grid = new ArrayBoxGrid(rowCount, columnCount);
+        for (int row = 0; row < rowCount; row++) {
+            for (int col = 0; col < columnCount; col++) {
+                int faces = 0;
+                for (int face = 0; face < PackedFaces.FACE_COUNT; face++) {
+                    faces = PackedFaces.withFace(faces, face, LETTERS[random.nextInt(LETTERS.length)]);
+                }
+                int type = random.nextInt(100);
+                char typeMarker = type < fixedPercent ? 'X' : type < fixedPercent + 10 ? 'U' : 'R';
+                byte toolKind = typeMarker == 'X' ? CellState.TOOL_NONE : toolKinds[random.nextInt(toolKinds.length)];
+                grid.setBox(row, col, box(typeMarker, faces, toolKind));
+            }
+        }
+        return grid;
+    }
+
+    private static Box box(char typeMarker, int faces, byte toolKind) {
+        if (typeMarker == 'X') {
+            return new FixedBox(faces);
+        }
+        Box box = typeMarker == 'U' ? new UnchangingBox(faces) : new RegularBox(faces);
+        box.setTool(CellState.toolOf(toolKind));
+        return box;
+    }
+
+    /**
+     * The best final count over every way of playing turnsLeft more turns.
+     */
+    static int bruteForce(BoxGrid grid, Letter targetLetter, int turnsLeft) {
+        if (turnsLeft == 0) {
+            return grid.countTopLetter(targetLetter);
+        }
+        int best = -1;
+        int rowCount = grid.getRowCount();
+        int columnCount = grid.getColumnCount();
+        for (int row = 0; row < rowCount; row++) {
+            for (int col = 0; col < columnCount; col++) {
+                if (!grid.isEdge(row, col)) {
+                    continue;
+                }
+                int edgeCell = Cell.of(row, col);
+                for (Direction direction : Direction.values()) {
+                    if (!new GameEngine(grid, targetLetter).isLegalDirection(edgeCell, direction)) {
+                        continue;
+                    }
+                    best = Math.max(best, bestTurn(grid, targetLetter, turnsLeft, edgeCell, direction));
+                }
+            }
+        }
+        return best;
+    }
+
+    // every way to finish a turn that starts with this roll
+    private static int bestTurn(BoxGrid grid, Letter targetLetter, int turnsLeft, int edgeCell, Direction direction) {
+        ArrayBoxGrid rolled = new ArrayBoxGrid(grid);
+        GameEngine engine = new GameEngine(rolled, targetLetter);
+        RollResult roll = engine.roll(edgeCell, direction);
+        if (roll.getOutcome() != TurnOutcome.ROLLED) {
+            return bruteForce(rolled, targetLetter, turnsLeft - 1);
+        }
+        int best = -1;
+        for (int i = 0; i < grid.getRowCount() * grid.getColumnCount(); i++) {
+            int openCell = Cell.of(i / grid.getColumnCount(), i % grid.getColumnCount());
+            if (!engine.wasMoved(openCell)) {
+                continue;
+            }
+            boolean hasTool = rolled.hasTool(Cell.row(openCell), Cell.col(openCell));
+            int targetCount = hasTool ? grid.getRowCount() * grid.getColumnCount() : 1;
+            for (int t = 0; t < targetCount; t++) {
+                int target = hasTool ? Cell.of(t / grid.getColumnCount(), t % grid.getColumnCount()) : Cell.NONE;
+                ArrayBoxGrid played = new ArrayBoxGrid(grid);
+                new GameEngine(played, targetLetter).play(new Move(edgeCell, direction, openCell, target));
+                best = Math.max(best, bruteForce(played, targetLetter, turnsLeft - 1));
+            }
+        }
+        return best;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
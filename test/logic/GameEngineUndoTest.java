@@ -0,0 +1,137 @@
+package logic;
+
+import data.repository.ArrayBoxGrid;
+import data.repository.BitBoardGrid;
+import data.repository.BoxGrid;
+import data.repository.Cell;
+import data.repository.ListBoxGrid;
+import data.repository.MappedBoxGrid;
+import data.repository.PersistentBoxGrid;
+import enums.Direction;
+import enums.Letter;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * GameEngineUndoTest
+ *
+ * Plays random games stage by stage on every BoxGrid backend with a journal,
+ * remembers the cells and the turn state after each stage, then takes all the
+ * stages back one by one and plays them again, comparing with what was seen on
+ * the way. Finally a new stage played after an undo must drop the redo steps.
+ *
+ * Runs without a test framework:
+ *   javac -d out $(find src test -name '*.java')
+ *   java -ea -cp out logic.GameEngineUndoTest
+ */
+public class GameEngineUndoTest {
+
+    private static final int SIDE = BoxGrid.DEFAULT_SIZE;
+    private static final Letter[] LETTERS = Letter.values();
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    public static void main(String[] args) throws Exception {
+        for (long seed = 1; seed <= 20; seed++) {
+            Path file = Files.createTempFile("engine-undo", ".grid");
+            try (MappedBoxGrid mapped = MappedBoxGrid.create(file, SIDE, SIDE, new SplittableRandom(seed))) {
+                BoxGrid[] grids = {
+                        new ListBoxGrid(SIDE, SIDE, new SplittableRandom(seed)),
+                        new ArrayBoxGrid(SIDE, SIDE, new SplittableRandom(seed)),
+                        new BitBoardGrid(new SplittableRandom(seed)),
+                        mapped,
+                        new PersistentBoxGrid(SIDE, SIDE, new SplittableRandom(seed)),
+                };
+                for (BoxGrid grid : grids) {
+                    undoAndRedo(grid, seed);
+                }
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+        System.out.println("GameEngineUndoTest passed");
+    }
+
+    private static void undoAndRedo(BoxGrid grid, long seed) {
+        String name = grid.getClass().getSimpleName() + " seed " + seed;
+        SplittableRandom random = new SplittableRandom(seed * 31 + 7);
+        GameEngine engine = new GameEngine(grid, LETTERS[random.nextInt(LETTERS.length)]);
+        grid.startJournal();
+
+        List<String> states = new ArrayList<>();
+        states.add(state(engine));
+        while (!engine.isOver()) {
+            playStage(engine, random);
+            states.add(state(engine));
+        }
+
+        for (int stage = states.size() - 2; stage >= 0; stage--) {
+            check(engine.undo(), name + ": undo of stage " + (stage + 1) + " refused");
+            check(state(engine).equals(states.get(stage)), name + ": wrong state after undoing to stage " + stage);
+        }
+        check(!engine.canUndo() && !engine.undo(), name + ": undo past the first stage");
+        for (int stage = 1; stage < states.size(); stage++) {
+            check(engine.redo(), name + ": redo of stage " + stage + " refused");
+            check(state(engine).equals(states.get(stage)), name + ": wrong state after redoing stage " + stage);
+        }
+        check(!engine.canRedo() && !engine.redo(), name + ": redo past the last stage");
+
+        // a new stage after an undo replaces the ones that could have been redone
+        int back = 1 + random.nextInt(states.size() - 1);
+        for (int i = 0; i < back; i++) {
+            engine.undo();
+        }
+        check(state(engine).equals(states.get(states.size() - 1 - back)), name + ": wrong state after undoing " + back);
+        playStage(engine, random);
+        check(!engine.canRedo(), name + ": redo kept after a new stage");
+        String replaced = state(engine);
+        check(engine.undo() && engine.redo() && state(engine).equals(replaced), name + ": new stage not undoable");
+    }
+
+    // a random roll, or the open of a random rolled box with a random tool target
+    private static void playStage(GameEngine engine, SplittableRandom random) {
+        BoxGrid grid = engine.getGrid();
+        if (!engine.isAwaitingOpen()) {
+            int edgeCell;
+            do {
+                edgeCell = Cell.of(random.nextInt(SIDE), random.nextInt(SIDE));
+            } while (!grid.isEdge(Cell.row(edgeCell), Cell.col(edgeCell)));
+            Direction direction;
+            do {
+                direction = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+            } while (!engine.isLegalDirection(edgeCell, direction));
+            engine.roll(edgeCell, direction);
+            return;
+        }
+        // the roll may have been undone and redone since, so the rolled boxes are read back from the engine
+        int openCell;
+        do {
+            openCell = Cell.of(random.nextInt(SIDE), random.nextInt(SIDE));
+        } while (!engine.wasMoved(openCell));
+        boolean hasTool = grid.hasTool(Cell.row(openCell), Cell.col(openCell));
+        engine.open(openCell, hasTool ? Cell.of(random.nextInt(SIDE), random.nextInt(SIDE)) : Cell.NONE);
+    }
+
+    // every cell, the turn state and the rolled boxes, in one comparable string
+    private static String state(GameEngine engine) {
+        BoxGrid grid = engine.getGrid();
+        int[] cells = new int[SIDE * SIDE];
+        StringBuilder moved = new StringBuilder();
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = grid.getCellState(i / SIDE, i % SIDE);
+            moved.append(engine.wasMoved(Cell.of(i / SIDE, i % SIDE)) ? '1' : '0');
+        }
+        return engine.getCompletedTurns() + " " + engine.isAwaitingOpen() + " " + engine.getScore()
+                + " " + moved + " " + Arrays.toString(cells);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}